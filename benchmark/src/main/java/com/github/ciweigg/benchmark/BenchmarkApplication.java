@@ -0,0 +1,8 @@
+package com.github.ciweigg.benchmark;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class BenchmarkApplication {
+
+}
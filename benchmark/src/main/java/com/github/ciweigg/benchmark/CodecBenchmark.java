@@ -0,0 +1,129 @@
+package com.github.ciweigg.benchmark;
+
+import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.client.codec.Codec;
+import org.redisson.codec.FstCodec;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.codec.KryoCodec;
+import org.redisson.codec.SmileJacksonCodec;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编解码吞吐量
+ * 分配情况使用 -prof gc 查看
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    @Param({"jackson", "fastjson", "kryo", "fst", "smile"})
+    private String codec;
+
+    @Param({"small", "large"})
+    private String payload;
+
+    private Serializer serializer;
+
+    private Payload value;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        serializer = createSerializer(codec);
+        value = "small".equals(payload) ? Payload.small() : Payload.large();
+        encoded = serializer.encode(value);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return serializer.encode(value);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return serializer.decode(encoded);
+    }
+
+    private static Serializer createSerializer(String codec) {
+        switch (codec) {
+            case "jackson":
+                return new CodecSerializer(new JsonJacksonCodec());
+            case "fastjson":
+                GenericFastJsonRedisSerializer fastJson = new GenericFastJsonRedisSerializer();
+                return new Serializer() {
+                    @Override
+                    public byte[] encode(Object value) {
+                        return fastJson.serialize(value);
+                    }
+
+                    @Override
+                    public Object decode(byte[] bytes) {
+                        return fastJson.deserialize(bytes);
+                    }
+                };
+            case "kryo":
+                return new CodecSerializer(new KryoCodec());
+            case "fst":
+                return new CodecSerializer(new FstCodec());
+            case "smile":
+                return new CodecSerializer(new SmileJacksonCodec());
+            default:
+                throw new IllegalArgumentException("unknown codec " + codec);
+        }
+    }
+
+    interface Serializer {
+
+        byte[] encode(Object value) throws IOException;
+
+        Object decode(byte[] bytes) throws IOException;
+
+    }
+
+    static class CodecSerializer implements Serializer {
+
+        private final Codec codec;
+
+        CodecSerializer(Codec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public byte[] encode(Object value) throws IOException {
+            ByteBuf buf = codec.getValueEncoder().encode(value);
+            try {
+                byte[] bytes = new byte[buf.readableBytes()];
+                buf.readBytes(bytes);
+                return bytes;
+            } finally {
+                buf.release();
+            }
+        }
+
+        @Override
+        public Object decode(byte[] bytes) throws IOException {
+            return codec.getValueDecoder().decode(Unpooled.wrappedBuffer(bytes), null);
+        }
+    }
+
+}
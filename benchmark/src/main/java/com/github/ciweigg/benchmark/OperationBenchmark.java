@@ -0,0 +1,123 @@
+package com.github.ciweigg.benchmark;
+
+import com.github.ciweigg.operation.RedissonCollection;
+import com.github.ciweigg.operation.RedissonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过本地启动的redis-server测试操作bean的端到端耗时
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class OperationBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"org.redisson.codec.JsonJacksonCodec", "com.github.ciweigg.codec.CompressionCodec"})
+    private String codec;
+
+    @Param({"small", "large"})
+    private String payload;
+
+    private RedisServer redisServer;
+
+    private ConfigurableApplicationContext context;
+
+    private RedissonObject redissonObject;
+
+    private RedissonCollection redissonCollection;
+
+    private Payload value;
+
+    private List<String> keys;
+
+    private Map<String, Payload> map;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        redisServer = new RedisServer();
+        redisServer.start();
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("redisson.mode=single",
+                        "redisson.codec=" + codec,
+                        "redisson.singleServerConfig.address=" + redisServer.getAddress())
+                .run();
+        redissonObject = context.getBean(RedissonObject.class);
+        redissonCollection = context.getBean(RedissonCollection.class);
+
+        value = "small".equals(payload) ? Payload.small() : Payload.large();
+        keys = new ArrayList<>(BATCH_SIZE);
+        map = new HashMap<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String key = "benchmark:object:" + i;
+            keys.add(key);
+            map.put("field-" + i, value);
+            redissonObject.setValue(key, value, -1L);
+        }
+        redissonCollection.setMapValues("benchmark:map", map, -1L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Benchmark
+    public Object objectGetValue() {
+        return redissonObject.getValue(keys.get(0));
+    }
+
+    @Benchmark
+    public void objectSetValue() {
+        redissonObject.setValue(keys.get(1), value);
+    }
+
+    @Benchmark
+    public Object objectGetValues() {
+        return redissonObject.getValues(keys);
+    }
+
+    @Benchmark
+    public void collectionSetMapValues() {
+        redissonCollection.setMapValues("benchmark:map:write", map);
+    }
+
+    @Benchmark
+    public Object collectionReadMap() {
+        return redissonCollection.getMap("benchmark:map").readAllMap();
+    }
+
+}
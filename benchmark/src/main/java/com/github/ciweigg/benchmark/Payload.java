@@ -0,0 +1,114 @@
+package com.github.ciweigg.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 测试数据,模拟常见的配置/会话对象
+ * 实现Serializable,默认配置的FstCodec只序列化Serializable对象
+ */
+public class Payload implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long id;
+    private String name;
+    private Boolean enabled;
+    private Double score;
+    private List<String> tags = new ArrayList<>();
+    private Map<String, String> attributes = new LinkedHashMap<>();
+    private List<Payload> children = new ArrayList<>();
+
+    /**
+     * 约200字节的json
+     */
+    public static Payload small() {
+        return create(1, 4, 4);
+    }
+
+    /**
+     * 约50KB的json
+     */
+    public static Payload large() {
+        Payload payload = create(1, 20, 20);
+        for (int i = 0; i < 100; i++) {
+            payload.children.add(create(i + 2, 5, 5));
+        }
+        return payload;
+    }
+
+    private static Payload create(long id, int tags, int attributes) {
+        Payload payload = new Payload();
+        payload.id = id;
+        payload.name = "payload-" + id;
+        payload.enabled = id % 2 == 0;
+        payload.score = id * 1.5;
+        for (int i = 0; i < tags; i++) {
+            payload.tags.add("tag-" + i);
+        }
+        for (int i = 0; i < attributes; i++) {
+            payload.attributes.put("attribute-" + i, "value-" + id + "-" + i);
+        }
+        return payload;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public void setScore(Double score) {
+        this.score = score;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+
+    public List<Payload> getChildren() {
+        return children;
+    }
+
+    public void setChildren(List<Payload> children) {
+        this.children = children;
+    }
+
+}
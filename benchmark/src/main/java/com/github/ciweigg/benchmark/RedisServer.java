@@ -0,0 +1,59 @@
+package com.github.ciweigg.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * 本地启动redis-server,可执行文件通过 -Dredis.server 指定,默认从PATH查找
+ */
+public class RedisServer {
+
+    private final int port;
+
+    private Process process;
+
+    public RedisServer() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            this.port = socket.getLocalPort();
+        }
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getAddress() {
+        return "127.0.0.1:" + port;
+    }
+
+    public void start() throws IOException, InterruptedException {
+        process = new ProcessBuilder(System.getProperty("redis.server", "redis-server"),
+                "--port", String.valueOf(port),
+                "--save", "",
+                "--appendonly", "no")
+                .redirectErrorStream(true)
+                .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "redis-benchmark-" + port + ".log"))
+                .start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        stop();
+        throw new IllegalStateException("redis-server did not start on port " + port);
+    }
+
+    public void stop() {
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+}
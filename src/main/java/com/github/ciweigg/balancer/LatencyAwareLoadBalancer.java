@@ -0,0 +1,241 @@
+package com.github.ciweigg.balancer;
+
+import com.github.ciweigg.properties.RedissonLoadBalancerConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.client.RedisClient;
+import org.redisson.client.RedisConnection;
+import org.redisson.client.protocol.RedisCommands;
+import org.redisson.connection.ClientConnectionsEntry;
+import org.redisson.connection.balancer.LoadBalancer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按延迟选择从节点
+ * 后台定期向每个节点发送PING,按指数滑动平均记录延迟;在途命令数由连接池空闲连接数估算(观察到的最大空闲数 - 当前空闲数),
+ * 选择时随机取两个节点,取 平均延迟 * (在途命令数 + 1) 较小的一个;
+ * 平均延迟超过中位数ejectFactor倍或PING失败的节点摘除ejectTime,摘除比例不超过maxEjectPercent
+ * 通过multipleServerConfig.loadBalancer=com.github.ciweigg.balancer.LatencyAwareLoadBalancer启用
+ */
+@Slf4j
+public class LatencyAwareLoadBalancer implements LoadBalancer {
+
+    /**
+     * 超过该时间没有参与选择的节点停止探测 单位毫秒
+     */
+    private static final long IDLE_NODE_TIMEOUT = 300000L;
+
+    private final RedissonLoadBalancerConfig config;
+
+    private final Map<RedisClient, NodeStats> nodes = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public LatencyAwareLoadBalancer() {
+        this(new RedissonLoadBalancerConfig());
+    }
+
+    public LatencyAwareLoadBalancer(RedissonLoadBalancerConfig config) {
+        this.config = config;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-balancer-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.scheduleWithFixedDelay(this::probe, config.getProbeInterval(), config.getProbeInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ClientConnectionsEntry getEntry(List<ClientConnectionsEntry> clientsCopy) {
+        long now = System.currentTimeMillis();
+        List<ClientConnectionsEntry> candidates = new ArrayList<>(clientsCopy.size());
+        for (ClientConnectionsEntry entry : clientsCopy) {
+            NodeStats stats = stats(entry, now);
+            if (stats.ejectedUntil <= now) {
+                candidates.add(entry);
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = clientsCopy;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ClientConnectionsEntry a = candidates.get(first);
+        ClientConnectionsEntry b = candidates.get(second);
+        return score(a) <= score(b) ? a : b;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        for (NodeStats stats : nodes.values()) {
+            stats.closeProbe();
+        }
+        nodes.clear();
+    }
+
+    private NodeStats stats(ClientConnectionsEntry entry, long now) {
+        NodeStats stats = nodes.computeIfAbsent(entry.getClient(), NodeStats::new);
+        stats.lastSeen = now;
+        int free = entry.getFreeAmount();
+        if (free > stats.maxFree) {
+            stats.maxFree = free;
+        }
+        return stats;
+    }
+
+    private double score(ClientConnectionsEntry entry) {
+        NodeStats stats = nodes.get(entry.getClient());
+        if (stats == null) {
+            return 0;
+        }
+        int inFlight = Math.max(0, stats.maxFree - entry.getFreeAmount());
+        return stats.ewma * (inFlight + 1);
+    }
+
+    /**
+     * 探测一轮,只在调度线程执行
+     */
+    private void probe() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<NodeStats> iterator = nodes.values().iterator();
+            while (iterator.hasNext()) {
+                NodeStats stats = iterator.next();
+                if (now - stats.lastSeen > IDLE_NODE_TIMEOUT) {
+                    stats.closeProbe();
+                    iterator.remove();
+                    continue;
+                }
+                stats.probe(now);
+            }
+            eject(now);
+        } catch (RuntimeException e) {
+            log.warn("load balancer probe failed", e);
+        }
+    }
+
+    private void eject(long now) {
+        List<NodeStats> measured = new ArrayList<>();
+        int ejected = 0;
+        for (NodeStats stats : nodes.values()) {
+            if (stats.ejectedUntil > now) {
+                ejected++;
+            } else if (stats.ewma > 0) {
+                measured.add(stats);
+            }
+        }
+        if (measured.size() < 2) {
+            return;
+        }
+        double[] latencies = new double[measured.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = measured.get(i).ewma;
+        }
+        Arrays.sort(latencies);
+        double median = latencies[latencies.length / 2];
+        double threshold = Math.max(median * config.getEjectFactor(), TimeUnit.MILLISECONDS.toNanos(config.getEjectMinLatency()));
+        int maxEjected = nodes.size() * config.getMaxEjectPercent() / 100;
+        measured.sort((x, y) -> Double.compare(y.ewma, x.ewma));
+        for (NodeStats stats : measured) {
+            if (stats.ewma <= threshold || ejected >= maxEjected) {
+                break;
+            }
+            stats.ejectedUntil = now + config.getEjectTime();
+            ejected++;
+            log.warn("redis node {} ejected, average latency {}ms, median {}ms", stats.client.getAddr(),
+                    TimeUnit.NANOSECONDS.toMillis((long) stats.ewma), TimeUnit.NANOSECONDS.toMillis((long) median));
+        }
+    }
+
+    private class NodeStats {
+
+        private final RedisClient client;
+
+        /**
+         * 平均延迟 单位纳秒,0表示还没有样本
+         */
+        private volatile double ewma;
+
+        private volatile int maxFree;
+
+        private volatile long ejectedUntil;
+
+        private volatile long lastSeen;
+
+        private RedisConnection connection;
+
+        /**
+         * 未完成的PING的发送时间,0表示没有
+         */
+        private volatile long pendingSince;
+
+        NodeStats(RedisClient client) {
+            this.client = client;
+        }
+
+        void probe(long now) {
+            long pending = pendingSince;
+            if (pending != 0) {
+                if (now - pending >= config.getProbeTimeout()) {
+                    failed(now, TimeUnit.MILLISECONDS.toNanos(config.getProbeTimeout()));
+                }
+                return;
+            }
+            try {
+                if (connection == null || !connection.isActive()) {
+                    closeProbe();
+                    connection = client.connect();
+                }
+            } catch (RuntimeException e) {
+                failed(now, TimeUnit.MILLISECONDS.toNanos(config.getProbeTimeout()));
+                return;
+            }
+            long start = System.nanoTime();
+            pendingSince = now;
+            connection.async(RedisCommands.PING).whenComplete((result, e) -> {
+                //失败时保留pendingSince,下一轮按超时处理
+                if (e == null && pendingSince == now) {
+                    record(System.nanoTime() - start);
+                    pendingSince = 0;
+                }
+            });
+        }
+
+        void record(long latency) {
+            double current = ewma;
+            ewma = current == 0 ? latency : current + config.getEwmaAlpha() * (latency - current);
+        }
+
+        void failed(long now, long penalty) {
+            record(penalty);
+            pendingSince = 0;
+            closeProbe();
+            if (ejectedUntil <= now) {
+                ejectedUntil = now + config.getEjectTime();
+                log.warn("redis node {} ejected, ping failed or timed out", client.getAddr());
+            }
+        }
+
+        void closeProbe() {
+            if (connection != null) {
+                connection.closeAsync();
+                connection = null;
+            }
+        }
+    }
+
+}
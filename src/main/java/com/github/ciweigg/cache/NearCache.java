@@ -0,0 +1,157 @@
+package com.github.ciweigg.cache;
+
+import com.github.ciweigg.properties.RedissonNearCacheConfig;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本地近端缓存(L1)
+ * 按key分段加锁的LRU,超过条数或存活时间后淘汰,通过redis topic通知所有节点失效
+ */
+public class NearCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final long timeToLive;
+
+    private final RTopic topic;
+
+    private final int listenerId;
+
+    public NearCache(RedissonClient redissonClient, RedissonNearCacheConfig config) {
+        this.timeToLive = config.getTimeToLive();
+        int segmentSize = Math.max(1, config.getMaxSize() / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.topic = redissonClient.getTopic(config.getInvalidationTopic(), StringCodec.INSTANCE);
+        this.listenerId = topic.addListener(String.class, (channel, name) -> evict(name));
+    }
+
+    /**
+     * 获取本地缓存的值
+     *
+     * @param name 键
+     * @return 未命中或已过期返回null
+     */
+    public Object get(String name) {
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            Entry entry = segment.get(name);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt < System.currentTimeMillis()) {
+                segment.remove(name);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * 键所在分段的失效计数,读取redis之前调用
+     * 失效计数按段维护,其它段的失效不影响这个键的回填
+     *
+     * @param name 键
+     * @return
+     */
+    public long generation(String name) {
+        return segmentFor(name).generation;
+    }
+
+    /**
+     * 放入本地缓存
+     *
+     * @param name       键
+     * @param value      值,null不缓存
+     * @param generation 读取redis之前键所在分段的失效计数,期间该段发生过失效则不缓存
+     */
+    public void put(String name, Object value, long generation) {
+        if (value == null) {
+            return;
+        }
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            if (segment.generation != generation) {
+                return;
+            }
+            segment.put(name, new Entry(value, System.currentTimeMillis() + timeToLive));
+        }
+    }
+
+    /**
+     * 失效本地缓存并通知其它节点
+     *
+     * @param names 键
+     */
+    public void invalidate(String... names) {
+        for (String name : names) {
+            evict(name);
+            topic.publishAsync(name);
+        }
+    }
+
+    /**
+     * 只失效本节点的缓存
+     *
+     * @param name 键
+     */
+    public void evict(String name) {
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            segment.generation++;
+            segment.remove(name);
+        }
+    }
+
+    public void shutdown() {
+        topic.removeListener(listenerId);
+    }
+
+    private Segment segmentFor(String name) {
+        int h = name.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static class Entry {
+
+        private final Object value;
+
+        private final long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class Segment extends LinkedHashMap<String, Entry> {
+
+        private final int capacity;
+
+        /**
+         * 失效计数,读取redis前记录,写入本地前比较,避免把失效前读到的旧值放回缓存;在锁内修改,锁外读取
+         */
+        private volatile long generation;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.github.ciweigg.cache;
+
+import com.github.ciweigg.properties.RedissonNegativeLookupConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import io.netty.util.CharsetUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 防缓存穿透
+ * 已存在的键登记到redis位数组上的布隆过滤器,本地保存一份位数组的镜像,判断不存在的键直接在本地返回,不访问redis和数据源;
+ * 新登记的键通过topic同步到其它节点,并定期从redis全量同步一次,布隆过滤器只增不减,同步时按位或合并;
+ * 批量登记大量键时只在refresh topic上发送一条通知,其它节点收到后立即全量同步
+ * 本地镜像首次同步完成之前不拦截任何键
+ */
+@Slf4j
+public class NegativeLookupGuard {
+
+    /**
+     * redis字符串最大512MB
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private final RedissonClient redissonClient;
+
+    private final String filterName;
+
+    private final long size;
+
+    private final int hashIterations;
+
+    private final AtomicLongArray bits;
+
+    private final int batchSize;
+
+    private final int bulkThreshold;
+
+    private final RTopic topic;
+
+    private final int listenerId;
+
+    private final RTopic refreshTopic;
+
+    private final int refreshListenerId;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private volatile boolean ready;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder passed = new LongAdder();
+
+    private final LongAdder nullMarkerHits = new LongAdder();
+
+    private final LongAdder falsePositives = new LongAdder();
+
+    public NegativeLookupGuard(RedissonRouter redissonRouter, RedissonNegativeLookupConfig config) {
+        this.filterName = config.getFilterName();
+        this.redissonClient = redissonRouter.route(filterName);
+        long n = Math.max(1, config.getExpectedInsertions());
+        double p = config.getFalseProbability();
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        this.size = Math.min(MAX_BITS, (m + 63) / 64 * 64);
+        this.hashIterations = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (size / 64));
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.bulkThreshold = config.getBulkThreshold();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-negative-lookup-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        this.topic = redissonClient.getTopic(config.getTopic(), StringCodec.INSTANCE);
+        this.listenerId = topic.addListener(String.class, (channel, name) -> setLocal(indexes(name)));
+        this.refreshTopic = redissonClient.getTopic(config.getTopic() + ":refresh", StringCodec.INSTANCE);
+        //全量同步较慢,不占用topic的监听线程
+        this.refreshListenerId = refreshTopic.addListener(String.class, (channel, message) -> scheduler.execute(this::refresh));
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, config.getRefreshInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 键是否可能存在,只读取本地镜像
+     *
+     * @param name 键
+     * @return false 一定不存在
+     */
+    public boolean mightContain(String name) {
+        if (!ready) {
+            return true;
+        }
+        for (long index : indexes(name)) {
+            if ((bits.get((int) (index >>> 6)) & (1L << (index & 63))) == 0) {
+                rejected.increment();
+                return false;
+            }
+        }
+        passed.increment();
+        return true;
+    }
+
+    /**
+     * 登记存在的键,按batchSize分批写入redis后通知其它节点
+     * 超过bulkThreshold个键时只发送一条全量同步通知
+     *
+     * @param names 键
+     */
+    public void put(Collection<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        RBatch batch = null;
+        int batched = 0;
+        for (String name : names) {
+            if (batch == null) {
+                batch = redissonClient.createBatch(BatchOptions.defaults());
+            }
+            long[] indexes = indexes(name);
+            for (long index : indexes) {
+                batch.getBitSet(filterName).setAsync(index);
+            }
+            setLocal(indexes);
+            if (++batched == batchSize) {
+                batch.execute();
+                batch = null;
+                batched = 0;
+            }
+        }
+        if (batch != null) {
+            batch.execute();
+        }
+        if (names.size() > bulkThreshold) {
+            refreshTopic.publishAsync(filterName);
+            return;
+        }
+        for (String name : names) {
+            topic.publishAsync(name);
+        }
+    }
+
+    /**
+     * 从redis全量同步本地镜像
+     */
+    public void refresh() {
+        try {
+            byte[] remote = redissonClient.getBitSet(filterName).toByteArray();
+            //redis位数组第i位是第i/8个字节的从高到低第i%8位,本地第i位是第i/64个long的从低到高第i%64位
+            int limit = (int) Math.min(remote.length, size / 8);
+            for (int word = 0; word * 8 < limit; word++) {
+                long value = 0;
+                for (int b = 0; b < 8 && word * 8 + b < limit; b++) {
+                    long reversed = (Integer.reverse(remote[word * 8 + b] & 0xFF) >>> 24) & 0xFF;
+                    value |= reversed << (b * 8);
+                }
+                if (value != 0) {
+                    bits.accumulateAndGet(word, value, (current, update) -> current | update);
+                }
+            }
+            ready = true;
+        } catch (RuntimeException e) {
+            log.warn("negative lookup filter {} refresh failed", filterName, e);
+        }
+    }
+
+    public void onNullMarkerHit() {
+        nullMarkerHits.increment();
+    }
+
+    public void onFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 本地拦截的次数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 判断可能存在而放行的次数
+     */
+    public long getPassed() {
+        return passed.sum();
+    }
+
+    /**
+     * 命中空值标记的次数
+     */
+    public long getNullMarkerHits() {
+        return nullMarkerHits.sum();
+    }
+
+    /**
+     * 放行后数据源也没有数据的次数
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    public void shutdown() {
+        topic.removeListener(listenerId);
+        refreshTopic.removeListener(refreshListenerId);
+        scheduler.shutdownNow();
+    }
+
+    private void setLocal(long[] indexes) {
+        for (long index : indexes) {
+            long mask = 1L << (index & 63);
+            bits.accumulateAndGet((int) (index >>> 6), mask, (current, update) -> current | update);
+        }
+    }
+
+    /**
+     * 双重哈希: 第i个位置为 h1 + i * h2,h1,h2取键MD5的前后8个字节
+     */
+    private long[] indexes(String name) {
+        MessageDigest digest = MD5.get();
+        digest.reset();
+        byte[] hash = digest.digest(name.getBytes(CharsetUtil.UTF_8));
+        long h1 = 0;
+        long h2 = 0;
+        for (int i = 0; i < 8; i++) {
+            h1 = (h1 << 8) | (hash[i] & 0xFF);
+            h2 = (h2 << 8) | (hash[i + 8] & 0xFF);
+        }
+        long[] indexes = new long[hashIterations];
+        long combined = h1;
+        for (int i = 0; i < hashIterations; i++) {
+            indexes[i] = (combined & Long.MAX_VALUE) % size;
+            combined += h2;
+        }
+        return indexes;
+    }
+
+}
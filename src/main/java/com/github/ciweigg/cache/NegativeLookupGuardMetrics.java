@@ -0,0 +1,33 @@
+package com.github.ciweigg.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 防缓存穿透的指标
+ * redisson.negative-lookup.rejected 布隆过滤器判断不存在,在本地拦截的次数
+ * redisson.negative-lookup.passed 判断可能存在而放行的次数
+ * redisson.negative-lookup.null-marker-hits 命中空值标记的次数
+ * redisson.negative-lookup.false-positives 放行后数据源也没有数据的次数
+ * redisson.negative-lookup.ready 本地镜像是否已同步 1是 0否
+ */
+public class NegativeLookupGuardMetrics implements MeterBinder {
+
+    private final NegativeLookupGuard guard;
+
+    public NegativeLookupGuardMetrics(NegativeLookupGuard guard) {
+        this.guard = guard;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("redisson.negative-lookup.rejected", guard, NegativeLookupGuard::getRejected).register(registry);
+        FunctionCounter.builder("redisson.negative-lookup.passed", guard, NegativeLookupGuard::getPassed).register(registry);
+        FunctionCounter.builder("redisson.negative-lookup.null-marker-hits", guard, NegativeLookupGuard::getNullMarkerHits).register(registry);
+        FunctionCounter.builder("redisson.negative-lookup.false-positives", guard, NegativeLookupGuard::getFalsePositives).register(registry);
+        Gauge.builder("redisson.negative-lookup.ready", guard, g -> g.isReady() ? 1 : 0).register(registry);
+    }
+
+}
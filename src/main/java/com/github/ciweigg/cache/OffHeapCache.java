@@ -0,0 +1,274 @@
+package com.github.ciweigg.cache;
+
+import com.github.ciweigg.properties.RedissonOffHeapCacheConfig;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 堆外本地缓存
+ * 值以编码后的字节保存在direct内存或内存映射文件中,按key分为16段,每段有自己的块分配器和LRU,
+ * 一个值按blockSize切分占用若干个不连续的块,空闲块不足时淘汰最久未访问的值;堆上只保留键和块编号
+ * 通过redis topic通知所有节点失效,与近端缓存相同
+ */
+public class OffHeapCache {
+
+    private static final int SEGMENTS = 16;
+
+    /**
+     * 单个ByteBuffer的最大大小
+     */
+    private static final int MAX_REGION_SIZE = 1 << 30;
+
+    private final Segment[] segments;
+
+    private final int minValueSize;
+
+    private final int maxValueSize;
+
+    private final long timeToLive;
+
+    private final RTopic topic;
+
+    private final int listenerId;
+
+    private final RandomAccessFile file;
+
+    public OffHeapCache(RedissonClient redissonClient, RedissonOffHeapCacheConfig config) {
+        this.timeToLive = config.getTimeToLive();
+        int blockSize = config.getBlockSize();
+        long segmentCapacity = config.getCapacity() / SEGMENTS / blockSize * blockSize;
+        this.minValueSize = config.getMinValueSize();
+        this.maxValueSize = (int) Math.min(config.getMaxValueSize(), segmentCapacity);
+        try {
+            if (StringUtils.hasText(config.getMappedFile())) {
+                File mapped = new File(config.getMappedFile());
+                mapped.deleteOnExit();
+                this.file = new RandomAccessFile(mapped, "rw");
+                this.file.setLength(segmentCapacity * SEGMENTS);
+            } else {
+                this.file = null;
+            }
+            this.segments = new Segment[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(blockSize, segmentCapacity, i * segmentCapacity);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.topic = redissonClient.getTopic(config.getInvalidationTopic(), StringCodec.INSTANCE);
+        this.listenerId = topic.addListener(String.class, (channel, name) -> evict(name));
+    }
+
+    /**
+     * 获取本地缓存的值
+     *
+     * @param name 键
+     * @return 编码后的字节,未命中或已过期返回null
+     */
+    public byte[] get(String name) {
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            return segment.read(name);
+        }
+    }
+
+    /**
+     * 键所在分段的失效计数,读取redis之前调用
+     * 失效计数按段维护,其它段的失效不影响这个键的回填
+     *
+     * @param name 键
+     * @return
+     */
+    public long generation(String name) {
+        return segmentFor(name).generation;
+    }
+
+    /**
+     * 放入本地缓存
+     *
+     * @param name       键
+     * @param value      编码后的字节
+     * @param generation 读取redis之前键所在分段的失效计数,期间该段发生过失效则不缓存
+     * @return 大小在minValueSize和maxValueSize之间返回true,此时调用方不需要再放入近端缓存
+     */
+    public boolean put(String name, byte[] value, long generation) {
+        if (value.length < minValueSize || value.length > maxValueSize) {
+            return false;
+        }
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            if (segment.generation == generation) {
+                segment.write(name, value, System.currentTimeMillis() + timeToLive);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 失效本地缓存并通知其它节点
+     *
+     * @param names 键
+     */
+    public void invalidate(String... names) {
+        for (String name : names) {
+            evict(name);
+            topic.publishAsync(name);
+        }
+    }
+
+    /**
+     * 只失效本节点的缓存
+     *
+     * @param name 键
+     */
+    public void evict(String name) {
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            segment.generation++;
+            segment.free(name);
+        }
+    }
+
+    public void shutdown() {
+        topic.removeListener(listenerId);
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private Segment segmentFor(String name) {
+        int h = name.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static class Entry {
+
+        private final int[] blocks;
+
+        private final int length;
+
+        private final long expireAt;
+
+        Entry(int[] blocks, int length, long expireAt) {
+            this.blocks = blocks;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 一段堆外内存,所有方法在synchronized(segment)内调用
+     */
+    private class Segment {
+
+        private final int blockSize;
+
+        private final int blocksPerRegion;
+
+        private final ByteBuffer[] regions;
+
+        /**
+         * 空闲块编号的栈
+         */
+        private final int[] freeBlocks;
+
+        private int freeCount;
+
+        /**
+         * 失效计数,读取redis前记录,写入本地前比较,避免把失效前读到的旧值放回缓存;在锁内修改,锁外读取
+         */
+        private volatile long generation;
+
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        Segment(int blockSize, long capacity, long fileOffset) throws IOException {
+            this.blockSize = blockSize;
+            this.blocksPerRegion = MAX_REGION_SIZE / blockSize;
+            int blocks = (int) (capacity / blockSize);
+            this.regions = new ByteBuffer[(blocks + blocksPerRegion - 1) / blocksPerRegion];
+            for (int i = 0; i < regions.length; i++) {
+                int size = Math.min(blocksPerRegion, blocks - i * blocksPerRegion) * blockSize;
+                long offset = fileOffset + (long) i * blocksPerRegion * blockSize;
+                regions[i] = file != null
+                        ? file.getChannel().map(FileChannel.MapMode.READ_WRITE, offset, size)
+                        : ByteBuffer.allocateDirect(size);
+            }
+            this.freeBlocks = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                freeBlocks[i] = blocks - 1 - i;
+            }
+            this.freeCount = blocks;
+        }
+
+        byte[] read(String name) {
+            Entry entry = entries.get(name);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt < System.currentTimeMillis()) {
+                free(name);
+                return null;
+            }
+            byte[] value = new byte[entry.length];
+            for (int i = 0, offset = 0; offset < entry.length; i++, offset += blockSize) {
+                ByteBuffer region = locate(entry.blocks[i]);
+                region.get(value, offset, Math.min(blockSize, entry.length - offset));
+            }
+            return value;
+        }
+
+        void write(String name, byte[] value, long expireAt) {
+            free(name);
+            int needed = (value.length + blockSize - 1) / blockSize;
+            while (freeCount < needed && !entries.isEmpty()) {
+                Map.Entry<String, Entry> eldest = entries.entrySet().iterator().next();
+                free(eldest.getKey());
+            }
+            if (freeCount < needed) {
+                return;
+            }
+            int[] blocks = new int[needed];
+            for (int i = 0, offset = 0; i < needed; i++, offset += blockSize) {
+                blocks[i] = freeBlocks[--freeCount];
+                ByteBuffer region = locate(blocks[i]);
+                region.put(value, offset, Math.min(blockSize, value.length - offset));
+            }
+            entries.put(name, new Entry(blocks, value.length, expireAt));
+        }
+
+        void free(String name) {
+            Entry entry = entries.remove(name);
+            if (entry == null) {
+                return;
+            }
+            for (int block : entry.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+        }
+
+        /**
+         * 定位到块的起始位置
+         */
+        private ByteBuffer locate(int block) {
+            ByteBuffer region = regions[block / blocksPerRegion];
+            region.position((block % blocksPerRegion) * blockSize);
+            return region;
+        }
+    }
+
+}
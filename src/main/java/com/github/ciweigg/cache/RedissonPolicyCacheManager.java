@@ -0,0 +1,97 @@
+package com.github.ciweigg.cache;
+
+import com.github.ciweigg.properties.RedissonCacheConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import org.redisson.api.LocalCachedMapOptions;
+import org.redisson.api.RLocalCachedMap;
+import org.redisson.api.RMapCache;
+import org.redisson.spring.cache.CacheConfig;
+import org.redisson.spring.cache.RedissonCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractCacheManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按缓存名称配置过期时间,最大空闲时间,最大条数和本地缓存的spring CacheManager
+ * 最大条数需要访问redis,在缓存第一次被获取时设置,不阻塞容器启动
+ */
+public class RedissonPolicyCacheManager extends AbstractCacheManager {
+
+    private final RedissonRouter redissonRouter;
+
+    private final Map<String, RedissonCacheConfig> configs;
+
+    private final RedissonCacheConfig defaultConfig;
+
+    /**
+     * 还未设置最大条数的缓存
+     */
+    private final Map<String, RMapCache<Object, Object>> pendingMaxSize = new ConcurrentHashMap<>();
+
+    /**
+     * @param redissonRouter 每个缓存是一个hash,分片模式下按缓存名称选择节点
+     * @param configs        各缓存的配置
+     * @param defaultTtl     未配置的缓存使用的缓存时间 单位毫秒 小于等于0不过期
+     */
+    public RedissonPolicyCacheManager(RedissonRouter redissonRouter, Map<String, RedissonCacheConfig> configs, long defaultTtl) {
+        this.redissonRouter = redissonRouter;
+        this.configs = configs;
+        this.defaultConfig = new RedissonCacheConfig();
+        this.defaultConfig.setTtl(Math.max(defaultTtl, 0));
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> caches = new ArrayList<>(configs.size());
+        for (Map.Entry<String, RedissonCacheConfig> entry : configs.entrySet()) {
+            caches.add(createCache(entry.getKey(), entry.getValue()));
+        }
+        return caches;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = super.getCache(name);
+        RMapCache<Object, Object> map = pendingMaxSize.remove(name);
+        if (map != null) {
+            try {
+                map.setMaxSize(configs.get(name).getMaxSize());
+            } catch (RuntimeException e) {
+                //设置失败下次获取时重试
+                pendingMaxSize.put(name, map);
+                throw e;
+            }
+        }
+        return cache;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createCache(name, defaultConfig);
+    }
+
+    private Cache createCache(String name, RedissonCacheConfig config) {
+        if (config.getLocalCached()) {
+            LocalCachedMapOptions<Object, Object> options = LocalCachedMapOptions.<Object, Object>defaults()
+                    .cacheSize(config.getMaxSize())
+                    .timeToLive(config.getTtl())
+                    .maxIdle(config.getMaxIdleTime())
+                    .evictionPolicy(LocalCachedMapOptions.EvictionPolicy.LRU);
+            RLocalCachedMap<Object, Object> map = redissonRouter.route(name).getLocalCachedMap(name, options);
+            return new RedissonCache(map, config.getAllowNullValues());
+        }
+        RMapCache<Object, Object> map = redissonRouter.route(name).getMapCache(name);
+        if (config.getMaxSize() > 0) {
+            pendingMaxSize.put(name, map);
+        }
+        CacheConfig cacheConfig = new CacheConfig(config.getTtl(), config.getMaxIdleTime());
+        cacheConfig.setMaxSize(config.getMaxSize());
+        return new RedissonCache(map, cacheConfig, config.getAllowNullValues());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.ciweigg.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 原样传递二进制的编解码
+ * ByteBuffer和byte[]直接包装成ByteBuf不做拷贝,其它参数按字符串编码,解码为byte[]
+ */
+public class ByteBufferCodec extends BaseCodec {
+
+    public static final ByteBufferCodec INSTANCE = new ByteBufferCodec();
+
+    private final Encoder encoder = in -> {
+        if (in instanceof ByteBuffer) {
+            return Unpooled.wrappedBuffer((ByteBuffer) in);
+        }
+        if (in instanceof byte[]) {
+            return Unpooled.wrappedBuffer((byte[]) in);
+        }
+        return Unpooled.copiedBuffer(String.valueOf(in), CharsetUtil.UTF_8);
+    };
+
+    private final Decoder<Object> decoder = (buf, state) -> {
+        byte[] result = new byte[buf.readableBytes()];
+        buf.readBytes(result);
+        return result;
+    };
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.github.ciweigg.codec;
+
+import org.redisson.client.codec.Codec;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 使用redisson编解码的RedisSerializer,RedisTemplate与redisson写入的值格式相同,可以互相读取
+ */
+public class CodecRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Codec codec;
+
+    public CodecRedisSerializer(Codec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        try {
+            return CodecSupport.encode(codec, value);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not serialize: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return CodecSupport.decode(codec, bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Could not deserialize: " + e.getMessage(), e);
+        }
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.github.ciweigg.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.Encoder;
+
+import java.io.IOException;
+
+/**
+ * 在redisson命令之外直接使用编解码
+ */
+public final class CodecSupport {
+
+    private CodecSupport() {
+    }
+
+    /**
+     * 按codec的值编码器编码
+     *
+     * @param codec
+     * @param value
+     * @return
+     */
+    public static byte[] encode(Codec codec, Object value) {
+        return encode(codec.getValueEncoder(), value);
+    }
+
+    /**
+     * 按指定编码器编码,用于map的键和值
+     *
+     * @param encoder
+     * @param value
+     * @return
+     */
+    public static byte[] encode(Encoder encoder, Object value) {
+        ByteBuf buf;
+        try {
+            buf = encoder.encode(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            return bytes;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * 按codec的值解码器解码
+     *
+     * @param codec
+     * @param bytes null返回null
+     * @return
+     */
+    public static <T> T decode(Codec codec, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuf buf = Unpooled.wrappedBuffer(bytes);
+        try {
+            return (T) codec.getValueDecoder().decode(buf, null);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            buf.release();
+        }
+    }
+
+}
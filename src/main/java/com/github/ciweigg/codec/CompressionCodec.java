@@ -0,0 +1,191 @@
+package com.github.ciweigg.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+import org.redisson.codec.JsonJacksonCodec;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 按大小阈值压缩的编解码
+ * 内部编解码序列化后超过阈值的值用lz4或snappy压缩,并加上头部:
+ * 4字节标记(0x80 0x00 'C' 'Z') + 1字节算法 + 4字节原始长度,小于阈值的值原样保存
+ * 读取时没有头部的数据直接交给内部编解码,可以直接读取开启压缩之前写入的数据
+ * 标记不会是内部编解码输出的开头:0x80不是合法的UTF-8首字节,json等文本格式不会以它开头;
+ * kryo先写类id的varint,0x80 0x00是非最短编码,kryo不会写出;java序列化以0xAC 0xED开头,
+ * FST以负数标记字节开头,都不会与标记冲突
+ */
+public class CompressionCodec extends BaseCodec {
+
+    private static final byte[] MAGIC = {(byte) 0x80, 0x00, 'C', 'Z'};
+
+    private static final int HEADER_SIZE = MAGIC.length + 5;
+
+    private final Codec innerCodec;
+
+    private final Algorithm algorithm;
+
+    private final int threshold;
+
+    private final Encoder encoder = new Encoder() {
+        @Override
+        public ByteBuf encode(Object in) throws IOException {
+            ByteBuf encoded = innerCodec.getValueEncoder().encode(in);
+            int length = encoded.readableBytes();
+            if (length < threshold) {
+                return encoded;
+            }
+            byte[] source = new byte[length];
+            encoded.getBytes(encoded.readerIndex(), source);
+            byte[] compressed = algorithm.compress(source);
+            if (compressed.length + HEADER_SIZE >= length) {
+                return encoded;
+            }
+            encoded.release();
+            ByteBuf out = ByteBufAllocator.DEFAULT.buffer(HEADER_SIZE + compressed.length);
+            out.writeBytes(MAGIC);
+            out.writeByte(algorithm.id);
+            out.writeInt(length);
+            out.writeBytes(compressed);
+            return out;
+        }
+    };
+
+    private final Decoder<Object> decoder = (buf, state) -> {
+        Algorithm compressed = readHeader(buf);
+        if (compressed == null) {
+            return innerCodec.getValueDecoder().decode(buf, state);
+        }
+        buf.skipBytes(MAGIC.length + 1);
+        int length = buf.readInt();
+        byte[] source = new byte[buf.readableBytes()];
+        buf.readBytes(source);
+        ByteBuf decompressed = Unpooled.wrappedBuffer(compressed.decompress(source, length));
+        try {
+            return innerCodec.getValueDecoder().decode(decompressed, state);
+        } finally {
+            decompressed.release();
+        }
+    };
+
+    public CompressionCodec() {
+        this(new JsonJacksonCodec());
+    }
+
+    public CompressionCodec(Codec innerCodec) {
+        this(innerCodec, Algorithm.LZ4, 1024);
+    }
+
+    public CompressionCodec(Codec innerCodec, Algorithm algorithm, int threshold) {
+        this.innerCodec = innerCodec;
+        this.algorithm = algorithm;
+        this.threshold = threshold;
+    }
+
+    public CompressionCodec(ClassLoader classLoader, CompressionCodec codec) throws ReflectiveOperationException {
+        this(copy(classLoader, codec.innerCodec), codec.algorithm, codec.threshold);
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return innerCodec.getClassLoader();
+    }
+
+    public Codec getInnerCodec() {
+        return innerCodec;
+    }
+
+    private static Algorithm readHeader(ByteBuf buf) {
+        if (buf.readableBytes() < HEADER_SIZE) {
+            return null;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.getByte(buf.readerIndex() + i) != MAGIC[i]) {
+                return null;
+            }
+        }
+        return Algorithm.of(buf.getByte(buf.readerIndex() + MAGIC.length));
+    }
+
+    /**
+     * 压缩算法,对应的依赖(lz4-java,snappy-java)需要自行引入
+     */
+    public enum Algorithm {
+
+        LZ4(1) {
+            @Override
+            byte[] compress(byte[] source) {
+                LZ4Compressor compressor = Lz4Holder.FACTORY.fastCompressor();
+                byte[] dest = new byte[compressor.maxCompressedLength(source.length)];
+                int length = compressor.compress(source, 0, source.length, dest, 0, dest.length);
+                return Arrays.copyOf(dest, length);
+            }
+
+            @Override
+            byte[] decompress(byte[] source, int length) {
+                LZ4FastDecompressor decompressor = Lz4Holder.FACTORY.fastDecompressor();
+                byte[] dest = new byte[length];
+                decompressor.decompress(source, 0, dest, 0, length);
+                return dest;
+            }
+        },
+
+        SNAPPY(2) {
+            @Override
+            byte[] compress(byte[] source) throws IOException {
+                return Snappy.compress(source);
+            }
+
+            @Override
+            byte[] decompress(byte[] source, int length) throws IOException {
+                return Snappy.uncompress(source);
+            }
+        };
+
+        private final byte id;
+
+        Algorithm(int id) {
+            this.id = (byte) id;
+        }
+
+        abstract byte[] compress(byte[] source) throws IOException;
+
+        abstract byte[] decompress(byte[] source, int length) throws IOException;
+
+        static Algorithm of(byte id) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.id == id) {
+                    return algorithm;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static class Lz4Holder {
+
+        private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.github.ciweigg.codec;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 基于kryo的二进制编解码
+ * Kryo实例连同其Input/Output缓冲一起池化复用,编码直接写入netty池化的ByteBuf,
+ * 注册的类按顺序从100开始分配固定id,写入类id代替类名,所有节点需要注册相同的类且顺序一致
+ */
+public class PooledKryoCodec extends BaseCodec {
+
+    private static final int FIRST_REGISTRATION_ID = 100;
+
+    private final List<Class<?>> registeredClasses;
+
+    private final boolean registrationRequired;
+
+    private final boolean references;
+
+    private final int bufferSize;
+
+    private final ClassLoader classLoader;
+
+    private final Queue<KryoHolder> pool = new ConcurrentLinkedQueue<>();
+
+    private final Encoder encoder = new Encoder() {
+        @Override
+        public ByteBuf encode(Object in) throws IOException {
+            ByteBuf out = ByteBufAllocator.DEFAULT.buffer();
+            KryoHolder holder = borrow();
+            try {
+                holder.output.setOutputStream(new ByteBufOutputStream(out));
+                holder.kryo.writeClassAndObject(holder.output, in);
+                holder.output.flush();
+                return out;
+            } catch (RuntimeException e) {
+                out.release();
+                throw e;
+            } finally {
+                holder.output.setOutputStream(null);
+                pool.offer(holder);
+            }
+        }
+    };
+
+    private final Decoder<Object> decoder = (buf, state) -> {
+        KryoHolder holder = borrow();
+        try {
+            holder.input.setInputStream(new ByteBufInputStream(buf));
+            return holder.kryo.readClassAndObject(holder.input);
+        } finally {
+            holder.input.setInputStream(null);
+            pool.offer(holder);
+        }
+    };
+
+    public PooledKryoCodec() {
+        this(Collections.emptyList());
+    }
+
+    public PooledKryoCodec(List<Class<?>> registeredClasses) {
+        this(registeredClasses, false, true, 4096, null);
+    }
+
+    /**
+     * @param registeredClasses    需要注册的类,顺序决定类id
+     * @param registrationRequired 是否只允许序列化注册过的类
+     * @param references           是否支持循环引用和共享引用
+     * @param bufferSize           每个池化实例的Input/Output缓冲大小 单位字节
+     * @param classLoader          反序列化使用的类加载器,null使用当前线程的类加载器
+     */
+    public PooledKryoCodec(List<Class<?>> registeredClasses, boolean registrationRequired, boolean references,
+                           int bufferSize, ClassLoader classLoader) {
+        this.registeredClasses = new ArrayList<>(registeredClasses);
+        this.registrationRequired = registrationRequired;
+        this.references = references;
+        this.bufferSize = bufferSize;
+        this.classLoader = classLoader;
+    }
+
+    public PooledKryoCodec(ClassLoader classLoader, PooledKryoCodec codec) {
+        this(codec.registeredClasses, codec.registrationRequired, codec.references, codec.bufferSize, classLoader);
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        if (classLoader != null) {
+            return classLoader;
+        }
+        return super.getClassLoader();
+    }
+
+    private KryoHolder borrow() {
+        KryoHolder holder = pool.poll();
+        if (holder == null) {
+            holder = new KryoHolder(createKryo(), bufferSize);
+        }
+        return holder;
+    }
+
+    private Kryo createKryo() {
+        Kryo kryo = new Kryo();
+        if (classLoader != null) {
+            kryo.setClassLoader(classLoader);
+        }
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        kryo.setRegistrationRequired(registrationRequired);
+        kryo.setReferences(references);
+        int id = FIRST_REGISTRATION_ID;
+        for (Class<?> registeredClass : registeredClasses) {
+            kryo.register(registeredClass, id++);
+        }
+        return kryo;
+    }
+
+    private static class KryoHolder {
+
+        private final Kryo kryo;
+
+        private final Output output;
+
+        private final Input input;
+
+        KryoHolder(Kryo kryo, int bufferSize) {
+            this.kryo = kryo;
+            this.output = new Output(bufferSize);
+            this.input = new Input(bufferSize);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.github.ciweigg.interceptor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 依次执行多个拦截器,前面的拦截器包裹后面的
+ */
+public class CompositeOperationInterceptor implements OperationInterceptor {
+
+    private final OperationInterceptor[] interceptors;
+
+    private CompositeOperationInterceptor(List<OperationInterceptor> interceptors) {
+        this.interceptors = interceptors.toArray(new OperationInterceptor[0]);
+    }
+
+    /**
+     * 组合拦截器,忽略NONE
+     *
+     * @param interceptors
+     * @return 没有拦截器时返回NONE,只有一个时直接返回
+     */
+    public static OperationInterceptor of(List<OperationInterceptor> interceptors) {
+        interceptors.removeIf(interceptor -> interceptor == null || interceptor == NONE);
+        if (interceptors.isEmpty()) {
+            return NONE;
+        }
+        if (interceptors.size() == 1) {
+            return interceptors.get(0);
+        }
+        return new CompositeOperationInterceptor(interceptors);
+    }
+
+    @Override
+    public <T> T intercept(String operation, String name, Supplier<T> action) {
+        return intercept(0, operation, name, action);
+    }
+
+    private <T> T intercept(int index, String operation, String name, Supplier<T> action) {
+        if (index == interceptors.length) {
+            return action.get();
+        }
+        return interceptors[index].intercept(operation, name, () -> intercept(index + 1, operation, name, action));
+    }
+
+    @Override
+    public <T> T interceptBatch(String operation, Collection<String> names, Supplier<T> action) {
+        return interceptBatch(0, operation, names, action);
+    }
+
+    private <T> T interceptBatch(int index, String operation, Collection<String> names, Supplier<T> action) {
+        if (index == interceptors.length) {
+            return action.get();
+        }
+        return interceptors[index].interceptBatch(operation, names, () -> interceptBatch(index + 1, operation, names, action));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> interceptAsync(String operation, String name, Supplier<CompletableFuture<T>> action) {
+        return interceptAsync(0, operation, name, action);
+    }
+
+    private <T> CompletableFuture<T> interceptAsync(int index, String operation, String name, Supplier<CompletableFuture<T>> action) {
+        if (index == interceptors.length) {
+            return action.get();
+        }
+        return interceptors[index].interceptAsync(operation, name, () -> interceptAsync(index + 1, operation, name, action));
+    }
+
+    @Override
+    public <T> T suspend(Supplier<T> work) {
+        return suspend(0, work);
+    }
+
+    private <T> T suspend(int index, Supplier<T> work) {
+        if (index == interceptors.length) {
+            return work.get();
+        }
+        return interceptors[index].suspend(() -> suspend(index + 1, work));
+    }
+
+    @Override
+    public void onHit(String operation, String name) {
+        for (OperationInterceptor interceptor : interceptors) {
+            interceptor.onHit(operation, name);
+        }
+    }
+
+    @Override
+    public void onMiss(String operation, String name) {
+        for (OperationInterceptor interceptor : interceptors) {
+            interceptor.onMiss(operation, name);
+        }
+    }
+
+    @Override
+    public void onPayload(String operation, String name, long bytes) {
+        for (OperationInterceptor interceptor : interceptors) {
+            interceptor.onPayload(operation, name, bytes);
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.github.ciweigg.interceptor;
+
+/**
+ * 热点键统计结果
+ */
+public class HotKey {
+
+    private final String name;
+
+    private final long accesses;
+
+    private final long bytes;
+
+    public HotKey(String name, long accesses, long bytes) {
+        this.name = name;
+        this.accesses = accesses;
+        this.bytes = bytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 估算的访问次数,每个统计周期减半
+     */
+    public long getAccesses() {
+        return accesses;
+    }
+
+    /**
+     * 最近一个统计周期传输的字节数,包括二进制操作和对象操作,对象操作按编码后的大小统计
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(accesses=" + accesses + ", bytes=" + bytes + ")";
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.github.ciweigg.interceptor;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * 热点键actuator端点 /actuator/redissonhotkeys
+ */
+@Endpoint(id = "redissonhotkeys")
+public class HotKeyEndpoint {
+
+    private final HotKeyTracker hotKeyTracker;
+
+    public HotKeyEndpoint(HotKeyTracker hotKeyTracker) {
+        this.hotKeyTracker = hotKeyTracker;
+    }
+
+    @ReadOperation
+    public List<HotKey> hotKeys() {
+        return hotKeyTracker.topKeys();
+    }
+
+}
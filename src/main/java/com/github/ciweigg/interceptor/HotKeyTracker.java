@@ -0,0 +1,189 @@
+package com.github.ciweigg.interceptor;
+
+import com.github.ciweigg.properties.RedissonHotKeyConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 热点键统计
+ * 按采样率把访问计入count-min sketch,估算值超过准入阈值的键进入候选集合,
+ * 每个统计周期在后台线程从候选中选出top-K并把sketch计数减半,访问路径上只有原子加法,不加锁
+ */
+@Slf4j
+public class HotKeyTracker implements OperationInterceptor {
+
+    private final RedissonHotKeyConfig config;
+
+    private final int width;
+
+    private final int depth;
+
+    private final AtomicLongArray sketch;
+
+    private final Map<String, LongAdder> candidates = new ConcurrentHashMap<>();
+
+    private final int maxCandidates;
+
+    /**
+     * 进入候选集合需要达到的估算访问次数,取上个周期top-K中最小值的一半
+     */
+    private volatile long admissionThreshold;
+
+    private volatile List<HotKey> topKeys = Collections.emptyList();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public HotKeyTracker(RedissonHotKeyConfig config) {
+        this.config = config;
+        int width = Integer.highestOneBit(Math.max(16, config.getSketchWidth()));
+        this.width = width < config.getSketchWidth() ? width << 1 : width;
+        this.depth = config.getSketchDepth();
+        this.sketch = new AtomicLongArray(this.width * depth);
+        this.maxCandidates = config.getTopK() * 8;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-hot-key-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.scheduleWithFixedDelay(this::report, config.getReportInterval(), config.getReportInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <T> T intercept(String operation, String name, Supplier<T> action) {
+        record(name);
+        return action.get();
+    }
+
+    /**
+     * 批量操作涉及的每个键各计一次访问
+     */
+    @Override
+    public <T> T interceptBatch(String operation, Collection<String> names, Supplier<T> action) {
+        for (String name : names) {
+            record(name);
+        }
+        return action.get();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> interceptAsync(String operation, String name, Supplier<CompletableFuture<T>> action) {
+        record(name);
+        return action.get();
+    }
+
+    @Override
+    public void onPayload(String operation, String name, long bytes) {
+        if (name == null) {
+            return;
+        }
+        LongAdder volume = candidates.get(name);
+        if (volume != null) {
+            volume.add(bytes);
+        }
+    }
+
+    /**
+     * 上个统计周期的热点键,按访问次数从高到低排列
+     *
+     * @return
+     */
+    public List<HotKey> topKeys() {
+        return topKeys;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void record(String name) {
+        if (name == null || name.isEmpty()) {
+            return;
+        }
+        int sampleRate = config.getSampleRate();
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        int h1 = spread(name.hashCode());
+        int h2 = spread(h1 * 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, sketch.addAndGet(index(i, h1, h2), sampleRate));
+        }
+        if (estimate >= admissionThreshold && candidates.size() < maxCandidates && !candidates.containsKey(name)) {
+            candidates.putIfAbsent(name, new LongAdder());
+        }
+    }
+
+    private long estimate(String name) {
+        int h1 = spread(name.hashCode());
+        int h2 = spread(h1 * 0x9E3779B9) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, sketch.get(index(i, h1, h2)));
+        }
+        return estimate;
+    }
+
+    private int index(int row, int h1, int h2) {
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+
+    private void report() {
+        try {
+            int topK = config.getTopK();
+            PriorityQueue<HotKey> heap = new PriorityQueue<>(topK + 1, Comparator.comparingLong(HotKey::getAccesses));
+            for (Map.Entry<String, LongAdder> entry : candidates.entrySet()) {
+                heap.offer(new HotKey(entry.getKey(), estimate(entry.getKey()), entry.getValue().sumThenReset()));
+                if (heap.size() > topK) {
+                    heap.poll();
+                }
+            }
+            List<HotKey> top = new ArrayList<>(heap);
+            top.sort(Comparator.comparingLong(HotKey::getAccesses).reversed());
+            topKeys = Collections.unmodifiableList(top);
+
+            Set<String> names = new HashSet<>();
+            for (HotKey key : top) {
+                names.add(key.getName());
+            }
+            candidates.keySet().retainAll(names);
+            for (int i = 0; i < sketch.length(); i++) {
+                long value = sketch.get(i);
+                if (value != 0) {
+                    sketch.addAndGet(i, -(value - (value >> 1)));
+                }
+            }
+            admissionThreshold = top.size() < topK ? 0 : heap.peek().getAccesses() / 2;
+
+            if (config.getLogEnabled() && !top.isEmpty()) {
+                log.info("redisson hot keys: {}", top);
+            }
+        } catch (RuntimeException e) {
+            log.warn("redisson hot key report failed", e);
+        }
+    }
+
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85EBCA6B;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.github.ciweigg.interceptor;
+
+/**
+ * 按分隔符截取键的前几段作为标签,例如 user:1001:profile 取1段为 user
+ */
+public class KeyPrefixTagExtractor implements KeyTagExtractor {
+
+    private static final String NONE = "none";
+
+    private final String delimiter;
+
+    private final int segments;
+
+    public KeyPrefixTagExtractor(String delimiter, int segments) {
+        this.delimiter = delimiter;
+        this.segments = segments;
+    }
+
+    @Override
+    public String extract(String name) {
+        if (name == null || segments <= 0) {
+            return NONE;
+        }
+        int end = -1;
+        int from = 0;
+        for (int i = 0; i < segments; i++) {
+            int next = name.indexOf(delimiter, from);
+            if (next == -1) {
+                break;
+            }
+            end = next;
+            from = next + delimiter.length();
+        }
+        //以分隔符开头的键没有前缀,不产生空标签
+        return end <= 0 ? NONE : name.substring(0, end);
+    }
+
+}
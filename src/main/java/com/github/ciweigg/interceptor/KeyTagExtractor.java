@@ -0,0 +1,11 @@
+package com.github.ciweigg.interceptor;
+
+/**
+ * 从键中提取统计标签,标签取值需要是有限的,不能直接使用完整的键
+ */
+@FunctionalInterface
+public interface KeyTagExtractor {
+
+    String extract(String name);
+
+}
@@ -0,0 +1,146 @@
+package com.github.ciweigg.interceptor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 基于Micrometer的操作统计
+ * redisson.operation 耗时(带百分位直方图),按operation,key,outcome打标签
+ * redisson.operation.results 命中/未命中/异常次数
+ * redisson.operation.payload 传输的字节数,批量操作按每个键的前缀分别记录
+ * 批量操作涉及多个前缀,耗时和结果统一使用key=batch标签
+ */
+public class MicrometerOperationInterceptor implements OperationInterceptor {
+
+    private static final String BATCH = "batch";
+
+    private final MeterRegistry registry;
+
+    private final KeyTagExtractor keyTagExtractor;
+
+    private final Map<String, Map<String, Meters>> meters = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<String, DistributionSummary>> payloads = new ConcurrentHashMap<>();
+
+    public MicrometerOperationInterceptor(MeterRegistry registry, KeyTagExtractor keyTagExtractor) {
+        this.registry = registry;
+        this.keyTagExtractor = keyTagExtractor;
+    }
+
+    @Override
+    public <T> T intercept(String operation, String name, Supplier<T> action) {
+        return record(meters(operation, keyTagExtractor.extract(name)), action);
+    }
+
+    @Override
+    public <T> T interceptBatch(String operation, Collection<String> names, Supplier<T> action) {
+        return record(meters(operation, BATCH), action);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> interceptAsync(String operation, String name, Supplier<CompletableFuture<T>> action) {
+        Meters meters = meters(operation, keyTagExtractor.extract(name));
+        long start = registry.config().clock().monotonicTime();
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException | Error e) {
+            meters.error.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            meters.errors.increment();
+            throw e;
+        }
+        return future.whenComplete((result, e) -> {
+            long elapsed = registry.config().clock().monotonicTime() - start;
+            if (e == null) {
+                meters.success.record(elapsed, TimeUnit.NANOSECONDS);
+            } else {
+                meters.error.record(elapsed, TimeUnit.NANOSECONDS);
+                meters.errors.increment();
+            }
+        });
+    }
+
+    @Override
+    public void onHit(String operation, String name) {
+        meters(operation, keyTagExtractor.extract(name)).hits.increment();
+    }
+
+    @Override
+    public void onMiss(String operation, String name) {
+        meters(operation, keyTagExtractor.extract(name)).misses.increment();
+    }
+
+    @Override
+    public void onPayload(String operation, String name, long bytes) {
+        payloads.computeIfAbsent(operation, op -> new ConcurrentHashMap<>())
+                .computeIfAbsent(keyTagExtractor.extract(name), k -> DistributionSummary.builder("redisson.operation.payload")
+                        .baseUnit("bytes")
+                        .tag("operation", operation)
+                        .tag("key", k)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(bytes);
+    }
+
+    private <T> T record(Meters meters, Supplier<T> action) {
+        long start = registry.config().clock().monotonicTime();
+        try {
+            T result = action.get();
+            meters.success.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException | Error e) {
+            meters.error.record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+            meters.errors.increment();
+            throw e;
+        }
+    }
+
+    private Meters meters(String operation, String key) {
+        return meters.computeIfAbsent(operation, op -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new Meters(registry, operation, k));
+    }
+
+    private static class Meters {
+
+        private final Timer success;
+        private final Timer error;
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter errors;
+
+        Meters(MeterRegistry registry, String operation, String key) {
+            this.success = timer(registry, operation, key, "success");
+            this.error = timer(registry, operation, key, "error");
+            this.hits = counter(registry, operation, key, "hit");
+            this.misses = counter(registry, operation, key, "miss");
+            this.errors = counter(registry, operation, key, "error");
+        }
+
+        private static Timer timer(MeterRegistry registry, String operation, String key, String outcome) {
+            return Timer.builder("redisson.operation")
+                    .tag("operation", operation)
+                    .tag("key", key)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private static Counter counter(MeterRegistry registry, String operation, String key, String result) {
+            return Counter.builder("redisson.operation.results")
+                    .tag("operation", operation)
+                    .tag("key", key)
+                    .tag("result", result)
+                    .register(registry);
+        }
+    }
+
+}
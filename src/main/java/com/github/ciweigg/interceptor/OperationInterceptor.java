@@ -0,0 +1,94 @@
+package com.github.ciweigg.interceptor;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 操作bean的拦截点,用于统计、限流等横切逻辑
+ * 默认实现直接执行,不做任何记录
+ */
+public interface OperationInterceptor {
+
+    OperationInterceptor NONE = new OperationInterceptor() {
+    };
+
+    /**
+     * 执行同步操作
+     *
+     * @param operation 操作名称
+     * @param name      键
+     * @param action    实际操作
+     * @return 操作结果
+     */
+    default <T> T intercept(String operation, String name, Supplier<T> action) {
+        return action.get();
+    }
+
+    /**
+     * 执行没有返回值的同步操作
+     */
+    default void execute(String operation, String name, Runnable action) {
+        intercept(operation, name, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 执行涉及多个键的同步操作,例如批量读写、刷新缓冲
+     * 默认按没有键的单个操作执行;按键统计的拦截器需要覆盖该方法逐个记录
+     *
+     * @param operation 操作名称
+     * @param names     涉及的键,不涉及具体键时为空集合
+     * @param action    实际操作
+     * @return 操作结果
+     */
+    default <T> T interceptBatch(String operation, Collection<String> names, Supplier<T> action) {
+        return intercept(operation, null, action);
+    }
+
+    /**
+     * 执行涉及多个键且没有返回值的同步操作
+     */
+    default void executeBatch(String operation, Collection<String> names, Runnable action) {
+        interceptBatch(operation, names, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 执行异步操作,耗时统计到future完成为止
+     */
+    default <T> CompletableFuture<T> interceptAsync(String operation, String name, Supplier<CompletableFuture<T>> action) {
+        return action.get();
+    }
+
+    /**
+     * 在同步操作内执行不访问redis的工作,例如调用loader加载数据、等待分布式锁
+     * 限流的拦截器在此期间释放占用的额度,这段时间也不计入命令耗时;默认直接执行
+     */
+    default <T> T suspend(Supplier<T> work) {
+        return work.get();
+    }
+
+    /**
+     * 读取命中
+     */
+    default void onHit(String operation, String name) {
+    }
+
+    /**
+     * 读取未命中
+     */
+    default void onMiss(String operation, String name) {
+    }
+
+    /**
+     * 传输的字节数
+     */
+    default void onPayload(String operation, String name, long bytes) {
+    }
+
+}
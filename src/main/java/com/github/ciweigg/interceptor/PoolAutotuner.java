@@ -0,0 +1,423 @@
+package com.github.ciweigg.interceptor;
+
+import com.github.ciweigg.properties.RedissonAutotuneConfig;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 在途命令数自动调节
+ * 这是操作bean的并发上限,不是连接池调节:redisson 3.11不能在运行时修改连接池大小,
+ * RedisTemplate和直接使用RBucket等对象的调用不经过这里,也不受限制,连接数不会因此减少;
+ * 作用是redis饱和时限制操作bean的并发,避免排队的命令拖慢所有调用
+ * 有调用方在等待额度时按increaseFactor乘法扩大,峰值在途数接近上限时按step加法扩大;
+ * 平均耗时超过平滑基线的latencyTolerance倍时认为redis已饱和,乘法缩小;
+ * 有命令但峰值在途数偏低时按step缩小,没有命令的周期保持不变
+ * 同步操作在调用线程上等待额度;异步操作不阻塞调用线程,没有额度时排队,
+ * 由释放额度的线程按顺序发起,等待超过acquireTimeout时future以异常结束
+ * 同步操作通过suspend执行的加载数据、等待锁等工作期间释放额度,也不计入耗时
+ */
+public class PoolAutotuner implements OperationInterceptor {
+
+    /**
+     * 调节动作
+     */
+    public enum Decision {
+        INCREASE, DECREASE, SHRINK, HOLD
+    }
+
+    private final RedissonAutotuneConfig config;
+
+    private final LimitSemaphore permits;
+
+    private final AtomicInteger limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    private final LongAdder latencyNanos = new LongAdder();
+
+    private final LongAdder commands = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final AtomicLong[] decisions = new AtomicLong[Decision.values().length];
+
+    /**
+     * 基线耗时,各周期平均耗时的指数移动平均,负载构成变化后几个周期内跟上,不会一直判定为饱和
+     */
+    private volatile double baselineNanos;
+
+    private long lastRejected;
+
+    private volatile double lastLatencyNanos;
+
+    private volatile double lastWaitNanos;
+
+    /**
+     * 当前线程正在执行的同步操作,嵌套时只占用一个额度
+     */
+    private final ThreadLocal<Segment> current = new ThreadLocal<>();
+
+    /**
+     * 等待额度的异步操作
+     */
+    private final Queue<Waiter<?>> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger draining = new AtomicInteger();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public PoolAutotuner(RedissonAutotuneConfig config) {
+        this.config = config;
+        this.limit = new AtomicInteger(config.getMaxPoolSize());
+        this.permits = new LimitSemaphore(config.getMaxPoolSize());
+        for (int i = 0; i < decisions.length; i++) {
+            decisions[i] = new AtomicLong();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-autotuner-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.scheduleWithFixedDelay(this::adjust, config.getInterval(), config.getInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public <T> T intercept(String operation, String name, Supplier<T> action) {
+        if (current.get() != null) {
+            return action.get();
+        }
+        acquire();
+        Segment segment = new Segment();
+        current.set(segment);
+        try {
+            return action.get();
+        } finally {
+            current.remove();
+            if (segment.holding) {
+                latencyNanos.add(System.nanoTime() - segment.start);
+                releasePermit();
+            }
+            commands.increment();
+        }
+    }
+
+    @Override
+    public <T> T suspend(Supplier<T> work) {
+        Segment segment = current.get();
+        if (segment == null || !segment.holding) {
+            return work.get();
+        }
+        latencyNanos.add(System.nanoTime() - segment.start);
+        segment.holding = false;
+        current.remove();
+        releasePermit();
+        T result;
+        try {
+            result = work.get();
+        } finally {
+            current.set(segment);
+        }
+        //重新获取失败时segment.holding保持false,外层不会多释放额度
+        acquire();
+        segment.holding = true;
+        segment.start = System.nanoTime();
+        return result;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> interceptAsync(String operation, String name, Supplier<CompletableFuture<T>> action) {
+        //已有排队的操作时排在后面,保证先到先执行
+        if (waiters.isEmpty() && permits.tryAcquire()) {
+            onAcquired();
+            return start(action);
+        }
+        Waiter<T> waiter = new Waiter<>(action);
+        waiter.timeout = scheduler.schedule(() -> expire(waiter), config.getAcquireTimeout(), TimeUnit.MILLISECONDS);
+        waiters.add(waiter);
+        drain();
+        return waiter.result;
+    }
+
+    /**
+     * 当前有效池大小
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * 当前在途命令数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 上个周期的平均等待时间 单位毫秒
+     */
+    public double getWaitMillis() {
+        return lastWaitNanos / 1_000_000;
+    }
+
+    /**
+     * 上个周期的平均耗时 单位毫秒
+     */
+    public double getLatencyMillis() {
+        return lastLatencyNanos / 1_000_000;
+    }
+
+    /**
+     * 等待额度超时的次数
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * 某种调节动作累计发生的次数
+     */
+    public long getDecisions(Decision decision) {
+        return decisions[decision.ordinal()].get();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        Waiter<?> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            waiter.reject(new RuntimeException("redisson pool autotuner is shut down"));
+        }
+    }
+
+    /**
+     * 同步操作在调用线程上等待额度
+     */
+    private void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.getAcquireTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        waitNanos.add(System.nanoTime() - start);
+        if (!acquired) {
+            rejected.increment();
+            throw noPermit();
+        }
+        onAcquired();
+    }
+
+    private RuntimeException noPermit() {
+        return new RuntimeException("redisson pool autotuner: no permit after " + config.getAcquireTimeout() + "ms, limit " + limit.get());
+    }
+
+    private void onAcquired() {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+    }
+
+    /**
+     * 已持有额度,发起异步操作,future完成时释放
+     */
+    private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> action) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException | Error e) {
+            release(start);
+            throw e;
+        }
+        return future.whenComplete((result, e) -> release(start));
+    }
+
+    private void release(long start) {
+        latencyNanos.add(System.nanoTime() - start);
+        commands.increment();
+        releasePermit();
+    }
+
+    private void releasePermit() {
+        inFlight.decrementAndGet();
+        permits.release();
+        drain();
+    }
+
+    /**
+     * 有空闲额度时按顺序发起排队的异步操作
+     * 发起的操作同步完成时会再次进入,只由最外层循环处理,避免递归
+     */
+    private void drain() {
+        if (draining.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (!waiters.isEmpty() && permits.tryAcquire()) {
+                Waiter<?> waiter = waiters.poll();
+                if (waiter == null || !waiter.begin()) {
+                    permits.release();
+                }
+            }
+        } while (draining.decrementAndGet() != 0);
+    }
+
+    private void expire(Waiter<?> waiter) {
+        if (waiter.reject(noPermit())) {
+            waiters.remove(waiter);
+            rejected.increment();
+            waitNanos.add(System.nanoTime() - waiter.enqueued);
+        }
+    }
+
+    private void adjust() {
+        long count = commands.sumThenReset();
+        long waited = waitNanos.sumThenReset();
+        long latency = latencyNanos.sumThenReset();
+        long rejectedTotal = rejected.sum();
+        long rejectedDelta = rejectedTotal - lastRejected;
+        lastRejected = rejectedTotal;
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        int current = limit.get();
+        if (count == 0) {
+            lastWaitNanos = 0;
+            lastLatencyNanos = 0;
+            //空闲周期没有可参考的数据,保持上限,避免下一次突发被限流
+            record(resize(Decision.HOLD, current));
+            return;
+        }
+        double avgWait = (double) waited / count;
+        double avgLatency = (double) latency / count;
+        lastWaitNanos = avgWait;
+        lastLatencyNanos = avgLatency;
+        double baseline = baselineNanos == 0 ? avgLatency : baselineNanos;
+        baselineNanos = baseline + (avgLatency - baseline) * config.getBaselineSmoothing();
+
+        boolean waiting = rejectedDelta > 0 || avgWait > TimeUnit.MILLISECONDS.toNanos(config.getWaitThreshold());
+        if (avgLatency > baseline * config.getLatencyTolerance()) {
+            record(resize(Decision.DECREASE, (int) (current * config.getDecreaseFactor())));
+        } else if (waiting) {
+            record(resize(Decision.INCREASE, Math.max(current + config.getStep(), (int) Math.ceil(current * config.getIncreaseFactor()))));
+        } else if (peak >= current * 0.9) {
+            record(resize(Decision.INCREASE, current + config.getStep()));
+        } else if (peak < current * config.getLowUtilization()) {
+            record(resize(Decision.SHRINK, current - config.getStep()));
+        } else {
+            record(resize(Decision.HOLD, current));
+        }
+    }
+
+    private Decision resize(Decision decision, int target) {
+        int current = limit.get();
+        target = Math.max(config.getMinPoolSize(), Math.min(config.getMaxPoolSize(), target));
+        if (target == current) {
+            return Decision.HOLD;
+        }
+        limit.set(target);
+        if (target > current) {
+            permits.release(target - current);
+            drain();
+        } else {
+            permits.reduce(current - target);
+        }
+        return decision;
+    }
+
+    private void record(Decision decision) {
+        decisions[decision.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * 同步操作当前占用额度的区间,suspend期间不占用
+     */
+    private static class Segment {
+
+        private long start = System.nanoTime();
+
+        private boolean holding = true;
+
+    }
+
+    /**
+     * 排队等待额度的异步操作
+     */
+    private class Waiter<T> {
+
+        private final Supplier<CompletableFuture<T>> action;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private final long enqueued = System.nanoTime();
+
+        /**
+         * 0 等待中,1 已发起,2 已超时或拒绝
+         */
+        private final AtomicInteger state = new AtomicInteger();
+
+        private volatile ScheduledFuture<?> timeout;
+
+        Waiter(Supplier<CompletableFuture<T>> action) {
+            this.action = action;
+        }
+
+        /**
+         * 已为该操作获取额度,返回false时已超时,调用方归还额度
+         */
+        boolean begin() {
+            if (!state.compareAndSet(0, 1)) {
+                return false;
+            }
+            ScheduledFuture<?> scheduled = timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            waitNanos.add(System.nanoTime() - enqueued);
+            onAcquired();
+            try {
+                start(action).whenComplete((value, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+            return true;
+        }
+
+        boolean reject(RuntimeException e) {
+            if (!state.compareAndSet(0, 2)) {
+                return false;
+            }
+            result.completeExceptionally(e);
+            return true;
+        }
+    }
+
+    private static class LimitSemaphore extends Semaphore {
+
+        LimitSemaphore(int permits) {
+            super(permits);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.github.ciweigg.interceptor;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 连接池自动调节的指标
+ * redisson.pool.limit 有效池大小
+ * redisson.pool.in-flight 在途命令数
+ * redisson.pool.wait / redisson.pool.latency 上个周期的平均等待时间和耗时 单位毫秒
+ * redisson.pool.decisions 各调节动作的次数
+ * redisson.pool.rejected 等待额度超时的次数
+ */
+public class PoolAutotunerMetrics implements MeterBinder {
+
+    private final PoolAutotuner autotuner;
+
+    public PoolAutotunerMetrics(PoolAutotuner autotuner) {
+        this.autotuner = autotuner;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("redisson.pool.limit", autotuner, PoolAutotuner::getLimit).register(registry);
+        Gauge.builder("redisson.pool.in-flight", autotuner, PoolAutotuner::getInFlight).register(registry);
+        Gauge.builder("redisson.pool.wait", autotuner, PoolAutotuner::getWaitMillis).baseUnit("milliseconds").register(registry);
+        Gauge.builder("redisson.pool.latency", autotuner, PoolAutotuner::getLatencyMillis).baseUnit("milliseconds").register(registry);
+        for (PoolAutotuner.Decision decision : PoolAutotuner.Decision.values()) {
+            FunctionCounter.builder("redisson.pool.decisions", autotuner, a -> a.getDecisions(decision))
+                    .tag("decision", decision.name().toLowerCase())
+                    .register(registry);
+        }
+        FunctionCounter.builder("redisson.pool.rejected", autotuner, PoolAutotuner::getRejected).register(registry);
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.github.ciweigg.operation;
+
+import org.redisson.api.RFuture;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * RFuture转换工具
+ */
+final class AsyncSupport {
+
+    private AsyncSupport() {
+    }
+
+    /**
+     * 转为独立的CompletableFuture,调用方complete不会影响redisson内部的promise
+     */
+    static <T> CompletableFuture<T> toFuture(RFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 同步等待结果,异常原样抛出
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+}
@@ -0,0 +1,402 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.codec.ByteBufferCodec;
+import com.github.ciweigg.codec.CodecSupport;
+import com.github.ciweigg.properties.RedissonBigValueConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.shard.ShardedBatch;
+import io.netty.util.CharsetUtil;
+import org.redisson.api.RBucket;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.client.codec.Codec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大值分片存储
+ * 编码后超过阈值的值按chunkSize切分,分片存入不带hash tag的独立键,在集群和分片模式下分散到不同节点,
+ * 原键中只保存清单(标记 + 版本 + 分片数 + 总长度),读取时一次管道取回全部分片后拼接解码
+ * 覆盖和删除时用脚本原子地替换原键并取回旧清单,旧版本的分片不立即删除,而是在retiredChunkTtl后过期,
+ * 让已读到旧清单的读取仍能取回完整分片;分片与清单使用相同的过期时间,
+ * 分片缺失时重新读取一次清单,版本已变化则按新清单重读,否则按不存在处理
+ */
+class BigValueStore {
+
+    private static final String MAGIC = "\u0000RBV:";
+
+    private static final byte[] MAGIC_BYTES = MAGIC.getBytes(CharsetUtil.UTF_8);
+
+    /**
+     * 覆盖原键,旧值是清单时返回旧清单
+     */
+    private static final String SET_SCRIPT =
+            "local old = false; "
+            + "if redis.call('type', KEYS[1]).ok == 'string' "
+            + "and redis.call('getrange', KEYS[1], 0, string.len(ARGV[3]) - 1) == ARGV[3] then "
+            + "old = redis.call('get', KEYS[1]); end; "
+            + "if ARGV[2] == '-1' then redis.call('set', KEYS[1], ARGV[1]); "
+            + "else redis.call('set', KEYS[1], ARGV[1], 'px', ARGV[2]); end; "
+            + "return old;";
+
+    /**
+     * 删除原键,返回{是否删除, 旧清单}
+     */
+    private static final String DELETE_SCRIPT =
+            "local t = redis.call('type', KEYS[1]).ok; "
+            + "if t == 'none' then return {0}; end; "
+            + "local old = false; "
+            + "if t == 'string' and redis.call('getrange', KEYS[1], 0, string.len(ARGV[1]) - 1) == ARGV[1] then "
+            + "old = redis.call('get', KEYS[1]); end; "
+            + "redis.call('del', KEYS[1]); "
+            + "if old then return {1, old}; end; "
+            + "return {1};";
+
+    private final RedissonRouter redissonRouter;
+
+    private final RedissonBigValueConfig config;
+
+    private final Codec codec;
+
+    BigValueStore(RedissonRouter redissonRouter, RedissonBigValueConfig config) {
+        this.redissonRouter = redissonRouter;
+        this.config = config;
+        this.codec = redissonRouter.clients().get(0).getConfig().getCodec();
+    }
+
+    <T> CompletableFuture<T> getAsync(String name) {
+        return getRawAsync(name).thenApply(bytes -> CodecSupport.decode(codec, bytes));
+    }
+
+    byte[] getRaw(String name) {
+        return AsyncSupport.join(getRawAsync(name));
+    }
+
+    /**
+     * 读取编码后的完整字节,分片已拼接,未解码
+     *
+     * @param name 键
+     * @return 不存在时为null
+     */
+    CompletableFuture<byte[]> getRawAsync(String name) {
+        RBucket<byte[]> bucket = redissonRouter.route(name).getBucket(name, ByteBufferCodec.INSTANCE);
+        return AsyncSupport.toFuture(bucket.getAsync()).thenCompose(raw -> resolveRawAsync(name, raw));
+    }
+
+    /**
+     * 批量读取编码后的完整字节,未解码
+     *
+     * @param names 键
+     * @return 不存在的键不包含在结果中
+     */
+    Map<String, byte[]> getAllRaw(Collection<String> names) {
+        ShardedBatch batch = new ShardedBatch(redissonRouter);
+        Map<String, RFuture<byte[]>> raws = new LinkedHashMap<>();
+        for (String name : names) {
+            raws.put(name, batch.batchFor(name).<byte[]>getBucket(name, ByteBufferCodec.INSTANCE).getAsync());
+        }
+        batch.execute();
+        Map<String, CompletableFuture<byte[]>> values = new LinkedHashMap<>();
+        for (Map.Entry<String, RFuture<byte[]>> entry : raws.entrySet()) {
+            values.put(entry.getKey(), resolveRawAsync(entry.getKey(), entry.getValue().getNow()));
+        }
+        Map<String, byte[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<byte[]>> entry : values.entrySet()) {
+            byte[] value = AsyncSupport.join(entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 解析原键中的内容,普通值原样返回,清单则取回全部分片并拼接
+     * 分片缺失时重新读取一次原键,期间被覆盖则按最新的内容解析
+     *
+     * @param name 键
+     * @param raw  原键中的字节
+     * @return 编码后的完整字节,分片缺失时为null
+     */
+    CompletableFuture<byte[]> resolveRawAsync(String name, byte[] raw) {
+        Manifest manifest = Manifest.parse(raw);
+        if (manifest == null) {
+            return CompletableFuture.completedFuture(raw);
+        }
+        return readChunksAsync(manifest).thenCompose(bytes -> {
+            if (bytes != null) {
+                return CompletableFuture.completedFuture(bytes);
+            }
+            RBucket<byte[]> bucket = redissonRouter.route(name).getBucket(name, ByteBufferCodec.INSTANCE);
+            return AsyncSupport.toFuture(bucket.getAsync()).thenCompose(current -> {
+                Manifest latest = Manifest.parse(current);
+                if (latest == null) {
+                    return CompletableFuture.completedFuture(current);
+                }
+                if (latest.version.equals(manifest.version)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return readChunksAsync(latest);
+            });
+        });
+    }
+
+    private CompletableFuture<byte[]> readChunksAsync(Manifest manifest) {
+        ShardedBatch batch = new ShardedBatch(redissonRouter);
+        List<RFuture<byte[]>> chunks = new ArrayList<>(manifest.chunks);
+        for (int i = 0; i < manifest.chunks; i++) {
+            String chunkKey = chunkKey(manifest.version, i);
+            chunks.add(batch.batchFor(chunkKey).<byte[]>getBucket(chunkKey, ByteBufferCodec.INSTANCE).getAsync());
+        }
+        return batch.executeAsync().thenApply(r -> assemble(manifest, chunks));
+    }
+
+    /**
+     * 写入,超过阈值时先写分片再替换清单
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     * @return
+     */
+    CompletableFuture<Void> setAsync(String name, Object value, Long time) {
+        return setEncodedAsync(name, CodecSupport.encode(codec, value), time);
+    }
+
+    void setEncoded(String name, byte[] bytes, Long time) {
+        AsyncSupport.join(setEncodedAsync(name, bytes, time));
+    }
+
+    /**
+     * 写入已编码的值,超过阈值时先写分片再替换清单
+     *
+     * @param name  键
+     * @param bytes 编码后的值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     * @return
+     */
+    CompletableFuture<Void> setEncodedAsync(String name, byte[] bytes, Long time) {
+        if (bytes.length < config.getThreshold()) {
+            return replaceAsync(name, bytes, time);
+        }
+        Manifest manifest = new Manifest(UUID.randomUUID().toString(), chunkCount(bytes.length), bytes.length);
+        CompletableFuture<Void> result = writeChunksAsync(manifest, bytes, time)
+                .thenCompose(v -> replaceAsync(name, manifest.format(), time));
+        result.whenComplete((v, e) -> {
+            if (e != null) {
+                deleteChunksAsync(manifest);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 原键不存在时写入
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     * @return true 设置成功,false 值存在,不设置
+     */
+    CompletableFuture<Boolean> trySetAsync(String name, Object value, Long time) {
+        return trySetEncodedAsync(name, CodecSupport.encode(codec, value), time);
+    }
+
+    boolean trySetEncoded(String name, byte[] bytes, Long time) {
+        return AsyncSupport.join(trySetEncodedAsync(name, bytes, time));
+    }
+
+    /**
+     * 原键不存在时写入已编码的值
+     *
+     * @param name  键
+     * @param bytes 编码后的值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     * @return true 设置成功,false 值存在,不设置
+     */
+    CompletableFuture<Boolean> trySetEncodedAsync(String name, byte[] bytes, Long time) {
+        if (bytes.length < config.getThreshold()) {
+            return trySetRawAsync(name, bytes, time);
+        }
+        Manifest manifest = new Manifest(UUID.randomUUID().toString(), chunkCount(bytes.length), bytes.length);
+        return writeChunksAsync(manifest, bytes, time)
+                .thenCompose(v -> trySetRawAsync(name, manifest.format(), time))
+                .whenComplete((b, e) -> {
+                    if (e != null || !b) {
+                        deleteChunksAsync(manifest);
+                    }
+                });
+    }
+
+    boolean delete(String name) {
+        return AsyncSupport.join(deleteAsync(name));
+    }
+
+    /**
+     * 删除原键,分片在retiredChunkTtl后过期
+     *
+     * @param name 键
+     * @return true 删除成功,false 不存在
+     */
+    CompletableFuture<Boolean> deleteAsync(String name) {
+        RScript script = redissonRouter.route(name).getScript(ByteBufferCodec.INSTANCE);
+        RFuture<List<Object>> future = script.evalAsync(RScript.Mode.READ_WRITE, DELETE_SCRIPT, RScript.ReturnType.MULTI,
+                Collections.singletonList(name), MAGIC);
+        return AsyncSupport.toFuture(future).thenCompose(result -> {
+            boolean deleted = ((Number) result.get(0)).longValue() > 0;
+            Manifest old = result.size() > 1 ? Manifest.parse((byte[]) result.get(1)) : null;
+            return retireChunksAsync(old).thenApply(v -> deleted);
+        });
+    }
+
+    long deleteAll(Collection<String> names) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(names.size());
+        for (String name : names) {
+            futures.add(deleteAsync(name));
+        }
+        long deleted = 0;
+        for (CompletableFuture<Boolean> future : futures) {
+            if (AsyncSupport.join(future)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private CompletableFuture<Void> replaceAsync(String name, byte[] bytes, Long time) {
+        RScript script = redissonRouter.route(name).getScript(ByteBufferCodec.INSTANCE);
+        RFuture<byte[]> future = script.evalAsync(RScript.Mode.READ_WRITE, SET_SCRIPT, RScript.ReturnType.VALUE,
+                Collections.singletonList(name), bytes, time, MAGIC);
+        return AsyncSupport.toFuture(future).thenCompose(old -> retireChunksAsync(Manifest.parse(old)));
+    }
+
+    private CompletableFuture<Boolean> trySetRawAsync(String name, byte[] bytes, Long time) {
+        RBucket<byte[]> bucket = redissonRouter.route(name).getBucket(name, ByteBufferCodec.INSTANCE);
+        if (time == -1) {
+            return AsyncSupport.toFuture(bucket.trySetAsync(bytes));
+        }
+        return AsyncSupport.toFuture(bucket.trySetAsync(bytes, time, TimeUnit.MILLISECONDS));
+    }
+
+    private CompletableFuture<Void> writeChunksAsync(Manifest manifest, byte[] bytes, Long time) {
+        int chunkSize = config.getChunkSize();
+        ShardedBatch batch = new ShardedBatch(redissonRouter);
+        for (int i = 0; i < manifest.chunks; i++) {
+            int offset = i * chunkSize;
+            ByteBuffer chunk = ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            String chunkKey = chunkKey(manifest.version, i);
+            RBucketAsync<ByteBuffer> bucket = batch.batchFor(chunkKey).getBucket(chunkKey, ByteBufferCodec.INSTANCE);
+            if (time == -1) {
+                bucket.setAsync(chunk);
+            } else {
+                bucket.setAsync(chunk, time, TimeUnit.MILLISECONDS);
+            }
+        }
+        return batch.executeAsync();
+    }
+
+    /**
+     * 被替换的旧版本分片延迟过期,并发读取已取到旧清单时仍能读完
+     */
+    private CompletableFuture<Void> retireChunksAsync(Manifest manifest) {
+        if (manifest == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ShardedBatch batch = new ShardedBatch(redissonRouter);
+        for (int i = 0; i < manifest.chunks; i++) {
+            String chunkKey = chunkKey(manifest.version, i);
+            batch.batchFor(chunkKey).getBucket(chunkKey).expireAsync(config.getRetiredChunkTtl(), TimeUnit.MILLISECONDS);
+        }
+        return batch.executeAsync();
+    }
+
+    /**
+     * 删除没有被清单引用的分片,用于写入失败或未设置时
+     */
+    private CompletableFuture<Void> deleteChunksAsync(Manifest manifest) {
+        if (manifest == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ShardedBatch batch = new ShardedBatch(redissonRouter);
+        for (int i = 0; i < manifest.chunks; i++) {
+            String chunkKey = chunkKey(manifest.version, i);
+            batch.batchFor(chunkKey).getBucket(chunkKey).deleteAsync();
+        }
+        return batch.executeAsync();
+    }
+
+    private byte[] assemble(Manifest manifest, List<RFuture<byte[]>> chunks) {
+        byte[] bytes = new byte[manifest.length];
+        int offset = 0;
+        for (RFuture<byte[]> future : chunks) {
+            byte[] chunk = future.getNow();
+            if (chunk == null || offset + chunk.length > bytes.length) {
+                return null;
+            }
+            System.arraycopy(chunk, 0, bytes, offset, chunk.length);
+            offset += chunk.length;
+        }
+        if (offset != bytes.length) {
+            return null;
+        }
+        return bytes;
+    }
+
+    private int chunkCount(int length) {
+        return (length + config.getChunkSize() - 1) / config.getChunkSize();
+    }
+
+    private String chunkKey(String version, int index) {
+        return config.getChunkKeyPrefix() + version + ":" + index;
+    }
+
+    /**
+     * 原键中保存的分片清单
+     */
+    private static class Manifest {
+
+        private final String version;
+
+        private final int chunks;
+
+        private final int length;
+
+        Manifest(String version, int chunks, int length) {
+            this.version = version;
+            this.chunks = chunks;
+            this.length = length;
+        }
+
+        byte[] format() {
+            return (MAGIC + version + ":" + chunks + ":" + length).getBytes(CharsetUtil.UTF_8);
+        }
+
+        /**
+         * @param raw 原键中的字节
+         * @return 不是清单返回null
+         */
+        static Manifest parse(byte[] raw) {
+            if (raw == null || raw.length < MAGIC_BYTES.length) {
+                return null;
+            }
+            for (int i = 0; i < MAGIC_BYTES.length; i++) {
+                if (raw[i] != MAGIC_BYTES[i]) {
+                    return null;
+                }
+            }
+            String[] parts = new String(raw, MAGIC_BYTES.length, raw.length - MAGIC_BYTES.length, CharsetUtil.UTF_8).split(":");
+            return new Manifest(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        }
+    }
+
+}
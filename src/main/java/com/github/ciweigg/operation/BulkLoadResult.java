@@ -0,0 +1,52 @@
+package com.github.ciweigg.operation;
+
+/**
+ * 批量导入结果
+ */
+public class BulkLoadResult {
+
+    private final long elements;
+
+    private final int commands;
+
+    private final int batches;
+
+    private final long elapsedNanos;
+
+    public BulkLoadResult(long elements, int commands, int batches, long elapsedNanos) {
+        this.elements = elements;
+        this.commands = commands;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getElements() {
+        return elements;
+    }
+
+    public int getCommands() {
+        return commands;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    /**
+     * 每秒导入的元素个数
+     */
+    public double getElementsPerSecond() {
+        return elapsedNanos == 0 ? 0 : elements * 1000000000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkLoadResult{elements=" + elements + ", commands=" + commands + ", batches=" + batches
+                + ", elapsedMillis=" + getElapsedMillis() + ", elementsPerSecond=" + (long) getElementsPerSecond() + "}";
+    }
+
+}
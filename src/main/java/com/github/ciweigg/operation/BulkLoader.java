@@ -0,0 +1,110 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.properties.RedissonCollectionConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.support.KeySupport;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块批量导入
+ * 数据先按块写入与目标键同slot的临时键,多个块合并为一个RBatch管道发送,
+ * 全部写完后在一个事务中RENAME到目标键并设置过期时间,读取方不会看到导入一半的数据
+ */
+class BulkLoader {
+
+    private final RedissonRouter redissonRouter;
+
+    private final RedissonCollectionConfig config;
+
+    BulkLoader(RedissonRouter redissonRouter, RedissonCollectionConfig config) {
+        this.redissonRouter = redissonRouter;
+        this.config = config;
+    }
+
+    /**
+     * @param name       目标键
+     * @param chunks     已按bulkChunkSize切分的数据
+     * @param elements   元素总数
+     * @param ordered    是否需要保证写入顺序
+     * @param writer     把一个块加入RBatch
+     * @param time       缓存时间 单位毫秒 -1 永久缓存
+     */
+    <C> BulkLoadResult load(String name, Iterator<C> chunks, long elements, boolean ordered, ChunkWriter<C> writer, Long time) {
+        long start = System.nanoTime();
+        //临时键与目标键同slot,也就落在同一个分片上
+        RedissonClient redissonClient = redissonRouter.route(name);
+        String tempName = KeySupport.sameSlotKey(name, ":bulk:" + UUID.randomUUID());
+        int maxInFlight = ordered ? 1 : config.getBulkMaxInFlightBatches();
+        Deque<RFuture<?>> inFlight = new ArrayDeque<>();
+        int commands = 0;
+        int batches = 0;
+        try {
+            RBatch batch = null;
+            int batchCommands = 0;
+            while (chunks.hasNext()) {
+                if (batch == null) {
+                    batch = redissonClient.createBatch(BatchOptions.defaults());
+                }
+                writer.write(batch, tempName, chunks.next());
+                if (commands++ == 0) {
+                    //临时键在第一块写入后才存在,此时再设置过期时间
+                    batch.getBucket(tempName).expireAsync(config.getBulkTempKeyTtl(), TimeUnit.MILLISECONDS);
+                }
+                if (++batchCommands == config.getBulkCommandsPerBatch()) {
+                    submit(batch, inFlight, maxInFlight);
+                    batches++;
+                    batch = null;
+                    batchCommands = 0;
+                }
+            }
+            if (batch != null) {
+                submit(batch, inFlight, maxInFlight);
+                batches++;
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().get();
+            }
+
+            RBatch commit = redissonClient.createBatch(BatchOptions.defaults()
+                    .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+            if (elements == 0) {
+                commit.getBucket(name).deleteAsync();
+            } else {
+                commit.getBucket(tempName).renameAsync(name);
+                if (time == -1) {
+                    commit.getBucket(name).clearExpireAsync();
+                }
+            }
+            //整体替换后换成新的版本,replace*之前的快照不再匹配
+            CollectionReplacer.stampVersion(commit, name, time);
+            commit.execute();
+        } catch (Exception e) {
+            redissonClient.getBucket(tempName).deleteAsync();
+            throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+        }
+        return new BulkLoadResult(elements, commands, batches, System.nanoTime() - start);
+    }
+
+    private void submit(RBatch batch, Deque<RFuture<?>> inFlight, int maxInFlight) throws Exception {
+        if (inFlight.size() >= maxInFlight) {
+            inFlight.poll().get();
+        }
+        inFlight.add(batch.executeAsync());
+    }
+
+    interface ChunkWriter<C> {
+
+        void write(RBatch batch, String name, C chunk);
+
+    }
+
+}
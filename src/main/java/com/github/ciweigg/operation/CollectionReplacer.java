@@ -0,0 +1,380 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.codec.ByteBufferCodec;
+import com.github.ciweigg.codec.CodecSupport;
+import com.github.ciweigg.properties.RedissonCollectionConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.support.KeySupport;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集合差异替换
+ * 与当前内容比较编码后的字节,只把删除、修改和新增的元素通过一个lua脚本原子写入,写入量与变化量成正比
+ * 每个集合有一个同slot的版本键,脚本先校验版本和集合大小,一致时才写入并换成新的随机版本;
+ * set*Values和bulkLoad*在写入数据的同一个事务中也换成新的随机版本(stampVersion),之前的快照都不再匹配;
+ * 版本键不存在时不允许替换,读取全部内容的事务中先用SET NX创建版本,保证参与比较的版本非空;
+ * 写入成功后把新内容作为快照保留在本地,下次替换时与快照比较,不需要读取redis,
+ * 快照不存在或校验失败时在一个事务中读取版本和全部内容后重新计算
+ */
+class CollectionReplacer {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * ARGV[1] 期望的版本,不能为空,ARGV[2] 期望的集合大小,ARGV[3] 缓存时间 -1永久,ARGV[4] 新的版本
+     */
+    private static final String CHECK = "local current = redis.call('get', KEYS[2]) or ''; "
+            + "if current == '' or current ~= ARGV[1] or redis.call('%s', KEYS[1]) ~= tonumber(ARGV[2]) then "
+            + "return 0; "
+            + "end; ";
+
+    private static final String COMMIT = "redis.call('set', KEYS[2], ARGV[4]); "
+            + "if tonumber(ARGV[3]) > 0 then "
+            + "redis.call('pexpire', KEYS[1], ARGV[3]); "
+            + "redis.call('pexpire', KEYS[2], ARGV[3]); "
+            + "else "
+            + "redis.call('persist', KEYS[1]); "
+            + "end; "
+            + "return 1;";
+
+    /**
+     * ARGV[5] 删除的成员个数,之后依次是删除的成员和新增的成员
+     * unpack每次最多展开1000个,避免超出lua栈大小
+     */
+    private static final String SET_SCRIPT = String.format(CHECK, "scard")
+            + "local removeEnd = 5 + tonumber(ARGV[5]); "
+            + "for i = 6, removeEnd, 1000 do "
+            + "redis.call('srem', KEYS[1], unpack(ARGV, i, math.min(i + 999, removeEnd))); "
+            + "end; "
+            + "for i = removeEnd + 1, #ARGV, 1000 do "
+            + "redis.call('sadd', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))); "
+            + "end; "
+            + COMMIT;
+
+    /**
+     * ARGV[5] 删除的字段个数,之后依次是删除的字段和修改、新增的字段值对
+     */
+    private static final String MAP_SCRIPT = String.format(CHECK, "hlen")
+            + "local removeEnd = 5 + tonumber(ARGV[5]); "
+            + "for i = 6, removeEnd, 1000 do "
+            + "redis.call('hdel', KEYS[1], unpack(ARGV, i, math.min(i + 999, removeEnd))); "
+            + "end; "
+            + "for i = removeEnd + 1, #ARGV, 1000 do "
+            + "redis.call('hmset', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))); "
+            + "end; "
+            + COMMIT;
+
+    /**
+     * ARGV[5] 新的长度,ARGV[6] 修改的位置个数,之后依次是位置值对和追加到末尾的元素
+     */
+    private static final String LIST_SCRIPT = String.format(CHECK, "llen")
+            + "local length = tonumber(ARGV[5]); "
+            + "local setEnd = 6 + tonumber(ARGV[6]) * 2; "
+            + "for i = 7, setEnd, 2 do "
+            + "redis.call('lset', KEYS[1], ARGV[i], ARGV[i + 1]); "
+            + "end; "
+            + "if length == 0 then "
+            + "redis.call('del', KEYS[1]); "
+            + "elseif length < tonumber(ARGV[2]) then "
+            + "redis.call('ltrim', KEYS[1], 0, length - 1); "
+            + "end; "
+            + "for i = setEnd + 1, #ARGV, 1000 do "
+            + "redis.call('rpush', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))); "
+            + "end; "
+            + COMMIT;
+
+    private final RedissonRouter redissonRouter;
+
+    private final RedissonCollectionConfig config;
+
+    /**
+     * 最近替换过的集合快照,按访问顺序淘汰
+     */
+    private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+
+    CollectionReplacer(RedissonRouter redissonRouter, RedissonCollectionConfig config) {
+        this.redissonRouter = redissonRouter;
+        this.config = config;
+    }
+
+    static String versionKey(String name) {
+        return KeySupport.sameSlotKey(name, ":version");
+    }
+
+    /**
+     * 在写入集合的事务中换成新的随机版本,并设置集合和版本的过期时间
+     * 调用方的batch需要是IN_MEMORY_ATOMIC模式,与数据写入一起原子执行
+     *
+     * @param batch 写入集合的事务
+     * @param name  集合的键
+     * @param time  缓存时间 单位毫秒 -1 不修改集合的过期时间,版本永久保存
+     */
+    static void stampVersion(RBatch batch, String name, Long time) {
+        RBucketAsync<String> version = batch.getBucket(versionKey(name), StringCodec.INSTANCE);
+        if (time == -1) {
+            version.setAsync(newVersion());
+        } else {
+            batch.getBucket(name).expireAsync(time, TimeUnit.MILLISECONDS);
+            version.setAsync(newVersion(), time, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static String newVersion() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    <T> ReplaceResult replaceSet(String name, Set<T> data, Long time) {
+        Codec codec = redissonRouter.route(name).getConfig().getCodec();
+        Set<ByteBuffer> target = new LinkedHashSet<>();
+        for (T value : data) {
+            target.add(ByteBuffer.wrap(CodecSupport.encode(codec, value)));
+        }
+        return replace(name, target, time, SET_SCRIPT, this::readSet, (current, args) -> diffSet((Set<ByteBuffer>) current, target, args));
+    }
+
+    <K, V> ReplaceResult replaceMap(String name, Map<K, V> data, Long time) {
+        Codec codec = redissonRouter.route(name).getConfig().getCodec();
+        Map<ByteBuffer, ByteBuffer> target = new LinkedHashMap<>();
+        for (Map.Entry<K, V> entry : data.entrySet()) {
+            target.put(ByteBuffer.wrap(CodecSupport.encode(codec.getMapKeyEncoder(), entry.getKey())),
+                    ByteBuffer.wrap(CodecSupport.encode(codec.getMapValueEncoder(), entry.getValue())));
+        }
+        return replace(name, target, time, MAP_SCRIPT, this::readMap, (current, args) -> diffMap((Map<ByteBuffer, ByteBuffer>) current, target, args));
+    }
+
+    <T> ReplaceResult replaceList(String name, List<T> data, Long time) {
+        Codec codec = redissonRouter.route(name).getConfig().getCodec();
+        List<ByteBuffer> target = new ArrayList<>(data.size());
+        for (T value : data) {
+            target.add(ByteBuffer.wrap(CodecSupport.encode(codec, value)));
+        }
+        return replace(name, target, time, LIST_SCRIPT, this::readList, (current, args) -> diffList((List<ByteBuffer>) current, target, args));
+    }
+
+    /**
+     * 丢弃本地快照
+     */
+    void discard(String name) {
+        synchronized (snapshots) {
+            snapshots.remove(name);
+        }
+    }
+
+    private ReplaceResult replace(String name, Object target, Long time, String script, Reader reader, Differ differ) {
+        long start = System.nanoTime();
+        RedissonClient redissonClient = redissonRouter.route(name);
+        List<Object> keys = Arrays.asList(name, versionKey(name));
+        Snapshot snapshot = snapshot(name);
+        boolean fullRead = false;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (snapshot == null) {
+                snapshot = read(redissonClient, name, reader);
+                fullRead = true;
+            }
+            String version = newVersion();
+            List<Object> args = new ArrayList<>();
+            args.add(snapshot.version);
+            args.add(size(snapshot.content));
+            args.add(time);
+            args.add(version);
+            long changes = differ.diff(snapshot.content, args);
+            Long applied = redissonClient.getScript(ByteBufferCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, script,
+                    RScript.ReturnType.INTEGER, keys, args.toArray());
+            if (applied == 1) {
+                store(name, new Snapshot(version, target));
+                return new ReplaceResult(size(target), changes, fullRead, System.nanoTime() - start);
+            }
+            //快照或读取之后集合被其它写入修改,重新读取
+            snapshot = null;
+        }
+        discard(name);
+        throw new IllegalStateException("collection " + name + " was modified concurrently " + MAX_ATTEMPTS + " times while replacing");
+    }
+
+    /**
+     * 在一个事务中读取版本和全部内容,保证两者一致
+     * 版本不存在时先创建,过期时间取bulkTempKeyTtl,替换成功后换成集合的过期时间
+     */
+    private Snapshot read(RedissonClient redissonClient, String name, Reader reader) {
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults()
+                .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+        RBucketAsync<String> versionBucket = batch.getBucket(versionKey(name), StringCodec.INSTANCE);
+        versionBucket.trySetAsync(newVersion(), config.getBulkTempKeyTtl(), TimeUnit.MILLISECONDS);
+        RFuture<String> versionFuture = versionBucket.getAsync();
+        RFuture<?> contentFuture = reader.read(batch, name);
+        batch.execute();
+        return new Snapshot(versionFuture.getNow(), wrap(contentFuture.getNow()));
+    }
+
+    private RFuture<?> readSet(RBatch batch, String name) {
+        return batch.getSet(name, ByteBufferCodec.INSTANCE).readAllAsync();
+    }
+
+    private RFuture<?> readMap(RBatch batch, String name) {
+        return batch.getMap(name, ByteBufferCodec.INSTANCE).readAllMapAsync();
+    }
+
+    private RFuture<?> readList(RBatch batch, String name) {
+        return batch.getList(name, ByteBufferCodec.INSTANCE).readAllAsync();
+    }
+
+    /**
+     * 读取到的byte[]包装为ByteBuffer,按内容比较相等
+     */
+    private static Object wrap(Object raw) {
+        if (raw instanceof Map) {
+            Map<ByteBuffer, ByteBuffer> result = new HashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+                result.put(ByteBuffer.wrap((byte[]) entry.getKey()), ByteBuffer.wrap((byte[]) entry.getValue()));
+            }
+            return result;
+        }
+        if (raw instanceof Set) {
+            Set<ByteBuffer> result = new HashSet<>();
+            for (Object value : (Set<?>) raw) {
+                result.add(ByteBuffer.wrap((byte[]) value));
+            }
+            return result;
+        }
+        List<ByteBuffer> result = new ArrayList<>();
+        for (Object value : (List<?>) raw) {
+            result.add(ByteBuffer.wrap((byte[]) value));
+        }
+        return result;
+    }
+
+    static long diffSet(Set<ByteBuffer> current, Set<ByteBuffer> target, List<Object> args) {
+        List<ByteBuffer> removed = new ArrayList<>();
+        for (ByteBuffer value : current) {
+            if (!target.contains(value)) {
+                removed.add(value);
+            }
+        }
+        args.add(removed.size());
+        args.addAll(removed);
+        long changes = removed.size();
+        for (ByteBuffer value : target) {
+            if (!current.contains(value)) {
+                args.add(value);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    static long diffMap(Map<ByteBuffer, ByteBuffer> current, Map<ByteBuffer, ByteBuffer> target, List<Object> args) {
+        List<ByteBuffer> removed = new ArrayList<>();
+        for (ByteBuffer field : current.keySet()) {
+            if (!target.containsKey(field)) {
+                removed.add(field);
+            }
+        }
+        args.add(removed.size());
+        args.addAll(removed);
+        long changes = removed.size();
+        for (Map.Entry<ByteBuffer, ByteBuffer> entry : target.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                args.add(entry.getKey());
+                args.add(entry.getValue());
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 按位置比较,重叠部分只修改不同的位置,新列表更长时追加,更短时截断
+     * 在开头插入或删除会使之后的位置全部不同,此时写入量与重写相同
+     */
+    static long diffList(List<ByteBuffer> current, List<ByteBuffer> target, List<Object> args) {
+        int overlap = Math.min(current.size(), target.size());
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < overlap; i++) {
+            if (!current.get(i).equals(target.get(i))) {
+                changed.add(i);
+            }
+        }
+        args.add(target.size());
+        args.add(changed.size());
+        for (int index : changed) {
+            args.add(index);
+            args.add(target.get(index));
+        }
+        for (int i = overlap; i < target.size(); i++) {
+            args.add(target.get(i));
+        }
+        return changed.size() + Math.abs(target.size() - current.size());
+    }
+
+    private static int size(Object content) {
+        return content instanceof Map ? ((Map<?, ?>) content).size() : ((Collection<?>) content).size();
+    }
+
+    private Snapshot snapshot(String name) {
+        synchronized (snapshots) {
+            return snapshots.get(name);
+        }
+    }
+
+    private void store(String name, Snapshot snapshot) {
+        int maxSnapshots = config.getReplaceSnapshots();
+        if (maxSnapshots <= 0) {
+            return;
+        }
+        synchronized (snapshots) {
+            snapshots.put(name, snapshot);
+            while (snapshots.size() > maxSnapshots) {
+                snapshots.remove(snapshots.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * 版本对应的集合内容,内容创建后不再修改
+     */
+    private static class Snapshot {
+
+        private final String version;
+
+        private final Object content;
+
+        Snapshot(String version, Object content) {
+            this.version = version;
+            this.content = content;
+        }
+    }
+
+    private interface Reader {
+
+        RFuture<?> read(RBatch batch, String name);
+
+    }
+
+    private interface Differ {
+
+        long diff(Object current, List<Object> args);
+
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.github.ciweigg.operation;
+
+import org.redisson.api.RList;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 按页通过LRANGE读取List,内存中只保留当前页
+ * 遍历过程中List被修改时,按索引继续读取,不保证快照一致
+ */
+class ListPageIterator<T> implements Iterator<T> {
+
+    private final RList<T> list;
+
+    private final int pageSize;
+
+    private List<T> page = Collections.emptyList();
+
+    private int pageIndex;
+
+    private int offset;
+
+    private boolean finished;
+
+    ListPageIterator(RList<T> list, int pageSize) {
+        this.list = list;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (pageIndex < page.size()) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        page = list.range(offset, offset + pageSize - 1);
+        pageIndex = 0;
+        offset += page.size();
+        if (page.size() < pageSize) {
+            finished = true;
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.get(pageIndex++);
+    }
+
+}
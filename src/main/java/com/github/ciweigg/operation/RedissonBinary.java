@@ -1,29 +1,68 @@
 package com.github.ciweigg.operation;
 
+import com.github.ciweigg.cache.OffHeapCache;
+import com.github.ciweigg.codec.ByteBufferCodec;
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonBinaryConfig;
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
 import org.redisson.api.RBinaryStream;
-import org.redisson.api.RListMultimap;
-import org.redisson.api.RedissonClient;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.Resource;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 
 /**
  * 操作对象二进制
+ * 读写按分块通过GETRANGE/SETRANGE管道并发传输,分块大小与在途数量见RedissonBinaryConfig
+ * 开启堆外缓存时getByteBuffer读取的内容放入堆外缓存,各个读取方法命中时不访问redis
  */
 public class RedissonBinary {
 
+    /**
+     * redis单个字符串的最大长度,超过后交给RBinaryStream分段存储
+     */
+    private static final long MAX_STRING_SIZE = 512L * 1024 * 1024;
+
+    private static final String GETRANGE_SCRIPT = "return redis.call('getrange', KEYS[1], ARGV[1], ARGV[2]);";
+
+    private static final String SETRANGE_SCRIPT = "return redis.call('setrange', KEYS[1], ARGV[1], ARGV[2]);";
+
+    @Resource
+    private RedissonRouter redissonRouter;
+
+    @Resource
+    private RedissonProperties redissonProperties;
+
     @Resource
-    private RedissonClient redissonClient;
+    private OperationInterceptor operationInterceptor;
+
+    @Autowired(required = false)
+    private OffHeapCache offHeapCache;
 
     /**
      * 获取输出流
+     * 通过输出流的写入不经过本类,不会失效堆外缓存;获取时先失效一次,
+     * 写入期间或写入之后读取放入堆外缓存的内容在timeToLive之内可能是旧值
      * @param name
      * @return
      */
     public  OutputStream getOutputStream(String name) {
-        RListMultimap<Object, Object> listMultimap = redissonClient.getListMultimap("");
-        RBinaryStream binaryStream = redissonClient.getBinaryStream(name);
+        invalidate(name);
+        RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
         return binaryStream.getOutputStream();
     }
     /**
@@ -32,37 +71,57 @@ public class RedissonBinary {
      * @return
      */
     public InputStream getInputStream(String name) {
-        RBinaryStream binaryStream = redissonClient.getBinaryStream(name);
+        RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
         return binaryStream.getInputStream();
     }
     /**
      * 获取输入流
+     * 内容先按分块写入stream,返回一个新的未读取的输入流
      * @param name
      * @return
      */
     public InputStream getValue(String name,OutputStream stream) {
-        try {
-            RBinaryStream binaryStream = redissonClient.getBinaryStream(name);
-            InputStream inputStream = binaryStream.getInputStream();
-            byte[] buff=new byte[1024];
-            int len;
-            while ((len=inputStream.read(buff))!=-1){
-                stream.write(buff,0,len);
-            }
-            return binaryStream.getInputStream();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        long bytes = operationInterceptor.intercept("getValue", name, () -> readTo(name, stream));
+        operationInterceptor.onPayload("getValue", name, bytes);
+        return redissonRouter.route(name).getBinaryStream(name).getInputStream();
+    }
+
+    /**
+     * 读取内容写入文件通道
+     * 按位置写入,不改变通道的当前位置
+     *
+     * @param name   键
+     * @param target 目标文件通道
+     * @return 写入的字节数
+     */
+    public long getValue(String name, FileChannel target) {
+        long bytes = operationInterceptor.intercept("getValue", name, () -> readTo(name, target));
+        operationInterceptor.onPayload("getValue", name, bytes);
+        return bytes;
+    }
+
+    /**
+     * 读取全部内容
+     *
+     * @param name 键
+     * @return 已flip的ByteBuffer
+     */
+    public ByteBuffer getByteBuffer(String name) {
+        ByteBuffer buffer = operationInterceptor.intercept("getValue", name, () -> readBuffer(name));
+        operationInterceptor.onPayload("getValue", name, buffer.remaining());
+        return buffer;
     }
 
     /**
      * 获取对象空间
+     * 与getOutputStream相同,通过返回对象的写入和删除不会失效堆外缓存,获取时先失效一次
      *
      * @param name
      * @return
      */
     public RBinaryStream getBucket(String name) {
-        return redissonClient.getBinaryStream(name);
+        invalidate(name);
+        return redissonRouter.route(name).getBinaryStream(name);
     }
 
     /**
@@ -73,30 +132,302 @@ public class RedissonBinary {
      * @return
      */
     public void setValue(String name, InputStream value) {
+        long bytes = operationInterceptor.intercept("setValue", name, () -> write(name, value));
+        operationInterceptor.onPayload("setValue", name, bytes);
+        invalidate(name);
+    }
+
+    /**
+     * 设置对象的值
+     * 从position到limit之间的内容,不改变buffer的位置
+     *
+     * @param name  键
+     * @param value 值
+     */
+    public void setValue(String name, ByteBuffer value) {
+        long bytes = operationInterceptor.intercept("setValue", name, () -> write(name, value));
+        operationInterceptor.onPayload("setValue", name, bytes);
+        invalidate(name);
+    }
+
+    /**
+     * 设置对象的值
+     * 从通道当前位置读取到文件末尾,大文件通过内存映射直接发送,不经过中间数组
+     *
+     * @param name  键
+     * @param value 文件通道
+     */
+    public void setValue(String name, FileChannel value) {
+        long bytes = operationInterceptor.intercept("setValue", name, () -> write(name, value));
+        operationInterceptor.onPayload("setValue", name, bytes);
+        invalidate(name);
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param name 键
+     * @return true 删除成功,false 不成功
+     */
+    public Boolean delete(String name) {
+        Boolean deleted = operationInterceptor.intercept("delete", name, () -> redissonRouter.route(name).getBinaryStream(name).delete());
+        invalidate(name);
+        return deleted;
+    }
+
+    private long readTo(String name, OutputStream stream) {
+        try {
+            byte[] cached = offHeapCache == null ? null : offHeapCache.get(name);
+            if (cached != null) {
+                stream.write(cached);
+                return cached.length;
+            }
+            RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
+            long size = binaryStream.size();
+            if (size > MAX_STRING_SIZE) {
+                return copy(binaryStream.getInputStream(), stream);
+            }
+            return readChunks(name, size, (position, chunk) -> stream.write(chunk));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long readTo(String name, FileChannel target) {
+        try {
+            byte[] cached = offHeapCache == null ? null : offHeapCache.get(name);
+            if (cached != null) {
+                return writeFully(target, ByteBuffer.wrap(cached), target.position());
+            }
+            RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
+            long size = binaryStream.size();
+            long start = target.position();
+            if (size > MAX_STRING_SIZE) {
+                InputStream inputStream = binaryStream.getInputStream();
+                byte[] buff = new byte[getBinaryConfig().getChunkSize()];
+                long position = start;
+                int len;
+                while ((len = inputStream.read(buff)) != -1) {
+                    position += writeFully(target, ByteBuffer.wrap(buff, 0, len), position);
+                }
+                return position - start;
+            }
+            return readChunks(name, size, (position, chunk) -> writeFully(target, ByteBuffer.wrap(chunk), start + position));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ByteBuffer readBuffer(String name) {
         try {
-            RBinaryStream binaryStream = redissonClient.getBinaryStream(name);
+            byte[] cached = offHeapCache == null ? null : offHeapCache.get(name);
+            if (cached != null) {
+                return ByteBuffer.wrap(cached);
+            }
+            long generation = offHeapCache == null ? 0 : offHeapCache.generation(name);
+            long size = redissonRouter.route(name).getBinaryStream(name).size();
+            if (size > MAX_STRING_SIZE) {
+                throw new IllegalStateException("binary stream " + name + " is too large for a ByteBuffer: " + size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            readChunks(name, size, (position, chunk) -> buffer.put(chunk));
+            buffer.flip();
+            if (offHeapCache != null) {
+                offHeapCache.put(name, Arrays.copyOf(buffer.array(), buffer.limit()), generation);
+            }
+            return buffer;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long write(String name, InputStream value) {
+        try {
+            RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
             binaryStream.delete();
+            int chunkSize = getBinaryConfig().getChunkSize();
+            ChunkWriter writer = new ChunkWriter(name);
+            long offset = 0;
+            while (offset + chunkSize <= MAX_STRING_SIZE) {
+                byte[] buff = new byte[chunkSize];
+                int len = readFully(value, buff);
+                if (len > 0) {
+                    writer.write(offset, len == chunkSize ? buff : ByteBuffer.wrap(buff, 0, len));
+                    offset += len;
+                }
+                if (len < chunkSize) {
+                    writer.flush();
+                    return offset;
+                }
+            }
+            writer.flush();
+            //超过redis单个字符串上限,剩余部分由RBinaryStream追加到后续分段
             OutputStream outputStream = binaryStream.getOutputStream();
-            byte[] buff = new byte[1024];
-            int len;
-            while ((len=value.read(buff))!=-1){
-                outputStream.write(buff,0,len);
+            return offset + copy(value, outputStream);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long write(String name, ByteBuffer value) {
+        try {
+            if (value.remaining() > MAX_STRING_SIZE) {
+                throw new IllegalArgumentException("value is too large for a single key: " + value.remaining());
+            }
+            redissonRouter.route(name).getBinaryStream(name).delete();
+            int chunkSize = getBinaryConfig().getChunkSize();
+            ChunkWriter writer = new ChunkWriter(name);
+            int start = value.position();
+            for (int offset = 0; offset < value.remaining(); offset += chunkSize) {
+                ByteBuffer chunk = value.duplicate();
+                chunk.position(start + offset);
+                chunk.limit(start + Math.min(offset + chunkSize, value.remaining()));
+                writer.write(offset, chunk);
             }
+            writer.flush();
+            return value.remaining();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    private long write(String name, FileChannel value) {
+        try {
+            long start = value.position();
+            long size = value.size() - start;
+            if (size > MAX_STRING_SIZE) {
+                return write(name, Channels.newInputStream(value));
+            }
+            RedissonBinaryConfig binaryConfig = getBinaryConfig();
+            if (size >= binaryConfig.getMappedThreshold()) {
+                MappedByteBuffer mapped = value.map(FileChannel.MapMode.READ_ONLY, start, size);
+                return write(name, mapped);
+            }
+            redissonRouter.route(name).getBinaryStream(name).delete();
+            int chunkSize = binaryConfig.getChunkSize();
+            ChunkWriter writer = new ChunkWriter(name);
+            for (long offset = 0; offset < size; offset += chunkSize) {
+                ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(chunkSize, size - offset));
+                while (chunk.hasRemaining()) {
+                    if (value.read(chunk, start + offset + chunk.position()) == -1) {
+                        break;
+                    }
+                }
+                chunk.flip();
+                writer.write(offset, chunk);
+            }
+            writer.flush();
+            return size;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void invalidate(String name) {
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(name);
+        }
+    }
+
+    private RedissonBinaryConfig getBinaryConfig() {
+        return redissonProperties.getBinaryConfig();
+    }
+
     /**
-     * 删除对象
+     * 按分块并发读取,按顺序交给consumer
      *
-     * @param name 键
-     * @return true 删除成功,false 不成功
+     * @return 读取的字节数
      */
-    public Boolean delete(String name) {
-        RBinaryStream binaryStream = redissonClient.getBinaryStream(name);
-        return binaryStream.delete();
+    private long readChunks(String name, long size, ChunkConsumer consumer) throws Exception {
+        RedissonBinaryConfig binaryConfig = getBinaryConfig();
+        int chunkSize = binaryConfig.getChunkSize();
+        int window = binaryConfig.getMaxInFlightChunks();
+        RScript script = redissonRouter.route(name).getScript(ByteBufferCodec.INSTANCE);
+        List<Object> keys = Collections.singletonList(name);
+        Deque<RFuture<byte[]>> inFlight = new ArrayDeque<>();
+        long requested = 0;
+        long position = 0;
+        while (position < size) {
+            while (requested < size && inFlight.size() < window) {
+                long end = Math.min(requested + chunkSize, size) - 1;
+                inFlight.add(script.evalAsync(RScript.Mode.READ_ONLY, GETRANGE_SCRIPT, RScript.ReturnType.VALUE, keys, requested, end));
+                requested = end + 1;
+            }
+            byte[] chunk = inFlight.poll().get();
+            if (chunk == null || chunk.length == 0) {
+                //读取过程中内容被删除或截断
+                break;
+            }
+            consumer.accept(position, chunk);
+            position += chunk.length;
+        }
+        return position;
     }
 
+    private static int readFully(InputStream in, byte[] buff) throws IOException {
+        int total = 0;
+        int len;
+        while (total < buff.length && (len = in.read(buff, total, buff.length - total)) != -1) {
+            total += len;
+        }
+        return total;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buff = new byte[getBinaryConfig().getChunkSize()];
+        long total = 0;
+        int len;
+        while ((len = in.read(buff)) != -1) {
+            out.write(buff, 0, len);
+            total += len;
+        }
+        return total;
+    }
+
+    private interface ChunkConsumer {
+
+        void accept(long position, byte[] chunk) throws IOException;
+
+    }
+
+    /**
+     * 按偏量SETRANGE写入,与完成顺序无关,在途数量超过上限时等待最早的一个
+     */
+    private class ChunkWriter {
+
+        private final RScript script;
+
+        private final List<Object> keys;
+
+        private final int window = getBinaryConfig().getMaxInFlightChunks();
+
+        private final Deque<RFuture<Long>> inFlight = new ArrayDeque<>();
+
+        ChunkWriter(String name) {
+            this.script = redissonRouter.route(name).getScript(ByteBufferCodec.INSTANCE);
+            this.keys = Collections.singletonList(name);
+        }
+
+        void write(long offset, Object chunk) throws Exception {
+            if (inFlight.size() >= window) {
+                inFlight.poll().get();
+            }
+            inFlight.add(script.evalAsync(RScript.Mode.READ_WRITE, SETRANGE_SCRIPT, RScript.ReturnType.INTEGER, keys, offset, chunk));
+        }
+
+        void flush() throws Exception {
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().get();
+            }
+        }
+    }
 
 }
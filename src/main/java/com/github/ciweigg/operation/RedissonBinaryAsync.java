@@ -0,0 +1,76 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.cache.OffHeapCache;
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.shard.RedissonRouter;
+import org.redisson.api.RBinaryStream;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步操作对象二进制
+ * 写入和删除完成后失效堆外缓存,与RedissonBinary相同
+ */
+public class RedissonBinaryAsync {
+
+    @Resource
+    private RedissonRouter redissonRouter;
+
+    @Resource
+    private OperationInterceptor operationInterceptor;
+
+    @Autowired(required = false)
+    private OffHeapCache offHeapCache;
+
+    /**
+     * 获取二进制内容
+     *
+     * @param name 键
+     * @return
+     */
+    public CompletableFuture<byte[]> getValue(String name) {
+        return operationInterceptor.interceptAsync("getValue", name, () -> {
+            RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
+            return AsyncSupport.toFuture(binaryStream.getAsync());
+        });
+    }
+
+    /**
+     * 设置二进制内容
+     *
+     * @param name  键
+     * @param value 值
+     * @return
+     */
+    public CompletableFuture<Void> setValue(String name, byte[] value) {
+        return operationInterceptor.interceptAsync("setValue", name, () -> {
+            RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
+            return AsyncSupport.toFuture(binaryStream.setAsync(value));
+        }).whenComplete((v, e) -> invalidate(name));
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param name 键
+     * @return true 删除成功,false 不成功
+     */
+    public CompletableFuture<Boolean> delete(String name) {
+        return operationInterceptor.interceptAsync("delete", name, () -> {
+            RBinaryStream binaryStream = redissonRouter.route(name).getBinaryStream(name);
+            return AsyncSupport.toFuture(binaryStream.deleteAsync());
+        }).whenComplete((deleted, e) -> invalidate(name));
+    }
+
+    /**
+     * 失败时命令也可能已经执行,同样失效
+     */
+    private void invalidate(String name) {
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(name);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.github.ciweigg.operation;
+
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Resource;
+
+/**
+ * 响应式操作对象二进制
+ */
+public class RedissonBinaryReactive {
+
+    @Resource
+    private RedissonBinaryAsync redissonBinaryAsync;
+
+    /**
+     * 获取二进制内容
+     *
+     * @param name 键
+     * @return 不存在时为空
+     */
+    public Mono<byte[]> getValue(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonBinaryAsync.getValue(name)));
+    }
+
+    /**
+     * 设置二进制内容
+     *
+     * @param name  键
+     * @param value 值
+     * @return
+     */
+    public Mono<Void> setValue(String name, byte[] value) {
+        return Mono.defer(() -> Mono.fromFuture(redissonBinaryAsync.setValue(name, value)));
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param name 键
+     * @return true 删除成功,false 不成功
+     */
+    public Mono<Boolean> delete(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonBinaryAsync.delete(name)));
+    }
+
+}
@@ -1,17 +1,31 @@
 package com.github.ciweigg.operation;
 
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonExpirationConfig;
 import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.support.ExpirationSupport;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
 import org.redisson.api.RList;
 import org.redisson.api.RMap;
 import org.redisson.api.RSet;
-import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
 import org.springframework.context.annotation.Configuration;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 操作集合
@@ -20,11 +34,24 @@ import java.util.concurrent.TimeUnit;
 public class RedissonCollection {
 
     @Resource
-    private RedissonClient redissonClient;
+    private RedissonRouter redissonRouter;
 
     @Resource
     private RedissonProperties redissonProperties;
 
+    @Resource
+    private OperationInterceptor operationInterceptor;
+
+    private BulkLoader bulkLoader;
+
+    private CollectionReplacer replacer;
+
+    @PostConstruct
+    public void init() {
+        bulkLoader = new BulkLoader(redissonRouter, redissonProperties.getCollectionConfig());
+        replacer = new CollectionReplacer(redissonRouter, redissonProperties.getCollectionConfig());
+    }
+
     /**
      * 获取map集合
      * @param name
@@ -33,7 +60,7 @@ public class RedissonCollection {
      * @return
      */
     public <K,V> RMap<K, V> getMap(String name){
-       return redissonClient.getMap(name);
+       return redissonRouter.route(name).getMap(name);
     }
 
     /**
@@ -44,12 +71,13 @@ public class RedissonCollection {
      * @return
      */
     public void setMapValues(String name, Map data,Long time){
-        RMap map = redissonClient.getMap(name);
-        Long dataValidTime = redissonProperties.getDataValidTime();
-        if(time!=-1){
-            map.expire(dataValidTime, TimeUnit.MILLISECONDS);
-        }
-        map.putAll(data);
+        operationInterceptor.execute("setMapValues", name, () -> {
+            RBatch batch = atomicBatch(name);
+            batch.getMap(name).putAllAsync(data);
+            CollectionReplacer.stampVersion(batch, name, expireTime(time));
+            batch.execute();
+            replacer.discard(name);
+        });
     }
     /**
      * 设置map集合
@@ -67,7 +95,7 @@ public class RedissonCollection {
      * @return
      */
     public <T> RList<T> getList(String name){
-       return redissonClient.getList(name);
+       return redissonRouter.route(name).getList(name);
     }
 
     /**
@@ -78,12 +106,13 @@ public class RedissonCollection {
      * @return
      */
     public void setListValues(String name, List data, Long time){
-        RList list = redissonClient.getList(name);
-        Long dataValidTime = redissonProperties.getDataValidTime();
-        if(time!=-1){
-            list.expire(dataValidTime, TimeUnit.MILLISECONDS);
-        }
-        list.addAll(data);
+        operationInterceptor.execute("setListValues", name, () -> {
+            RBatch batch = atomicBatch(name);
+            batch.getList(name).addAllAsync(data);
+            CollectionReplacer.stampVersion(batch, name, expireTime(time));
+            batch.execute();
+            replacer.discard(name);
+        });
     }
     /**
      * 设置List集合
@@ -100,7 +129,7 @@ public class RedissonCollection {
      * @return
      */
     public <T> RSet<T> getSet(String name){
-       return redissonClient.getSet(name);
+       return redissonRouter.route(name).getSet(name);
     }
 
     /**
@@ -111,12 +140,13 @@ public class RedissonCollection {
      * @return
      */
     public void setSetValues(String name, Set data, Long time){
-        RSet set = redissonClient.getSet(name);
-        Long dataValidTime = redissonProperties.getDataValidTime();
-        if(time!=-1){
-            set.expire(dataValidTime, TimeUnit.MILLISECONDS);
-        }
-        set.addAll(data);
+        operationInterceptor.execute("setSetValues", name, () -> {
+            RBatch batch = atomicBatch(name);
+            batch.getSet(name).addAllAsync(data);
+            CollectionReplacer.stampVersion(batch, name, expireTime(time));
+            batch.execute();
+            replacer.discard(name);
+        });
     }
     /**
      * 设置set集合
@@ -128,8 +158,249 @@ public class RedissonCollection {
         setSetValues(name,data,redissonProperties.getDataValidTime());
     }
 
+    /**
+     * 分块批量导入map集合,替换原有数据
+     * 按bulkChunkSize分块通过RBatch管道写入,全部完成后原子替换并设置过期时间
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return 导入统计,可用于调整分块大小
+     */
+    public <K, V> BulkLoadResult bulkLoadMap(String name, Map<K, V> data, Long time) {
+        int chunkSize = redissonProperties.getCollectionConfig().getBulkChunkSize();
+        return operationInterceptor.intercept("bulkLoadMap", name, () -> bulkLoader.load(name, mapChunks(data, chunkSize), data.size(), false,
+                (RBatch batch, String key, Map<K, V> chunk) -> batch.<K, V>getMap(key).putAllAsync(chunk), expireTime(time)));
+    }
+
+    /**
+     * 分块批量导入List集合,替换原有数据,保持元素顺序
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return 导入统计,可用于调整分块大小
+     */
+    public <T> BulkLoadResult bulkLoadList(String name, List<T> data, Long time) {
+        int chunkSize = redissonProperties.getCollectionConfig().getBulkChunkSize();
+        return operationInterceptor.intercept("bulkLoadList", name, () -> bulkLoader.load(name, chunks(data, chunkSize), data.size(), true,
+                (RBatch batch, String key, List<T> chunk) -> batch.<T>getList(key).addAllAsync(chunk), expireTime(time)));
+    }
+
+    /**
+     * 分块批量导入set集合,替换原有数据
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return 导入统计,可用于调整分块大小
+     */
+    public <T> BulkLoadResult bulkLoadSet(String name, Set<T> data, Long time) {
+        int chunkSize = redissonProperties.getCollectionConfig().getBulkChunkSize();
+        return operationInterceptor.intercept("bulkLoadSet", name, () -> bulkLoader.load(name, chunks(data, chunkSize), data.size(), false,
+                (RBatch batch, String key, List<T> chunk) -> batch.<T>getSet(key).addAllAsync(chunk), expireTime(time)));
+    }
+
+    /**
+     * 替换map集合的全部数据,只写入删除、修改和新增的字段,在一个lua脚本中原子完成
+     * 本地有上次替换的快照时直接与快照比较,否则先读取redis中的全部数据
+     * 通过getMap直接修改且字段个数不变时无法发现,此时会基于过期的快照计算差异,
+     * 这种用法需要把replaceSnapshots设为0
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return 替换统计
+     */
+    public <K, V> ReplaceResult replaceMap(String name, Map<K, V> data, Long time) {
+        return operationInterceptor.intercept("replaceMap", name, () -> replacer.replaceMap(name, data, expireTime(time)));
+    }
+
+    /**
+     * 替换map集合的全部数据
+     * @param name
+     * @param data
+     * @return 替换统计
+     */
+    public <K, V> ReplaceResult replaceMap(String name, Map<K, V> data) {
+        return replaceMap(name, data, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 替换List集合的全部数据,按位置比较,只修改不同的位置并追加或截断末尾
+     * 在开头插入或删除元素时之后的位置全部不同,写入量与重写相同
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return 替换统计
+     */
+    public <T> ReplaceResult replaceList(String name, List<T> data, Long time) {
+        return operationInterceptor.intercept("replaceList", name, () -> replacer.replaceList(name, data, expireTime(time)));
+    }
+
+    /**
+     * 替换List集合的全部数据
+     * @param name
+     * @param data
+     * @return 替换统计
+     */
+    public <T> ReplaceResult replaceList(String name, List<T> data) {
+        return replaceList(name, data, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 替换set集合的全部数据,只写入删除和新增的成员
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return 替换统计
+     */
+    public <T> ReplaceResult replaceSet(String name, Set<T> data, Long time) {
+        return operationInterceptor.intercept("replaceSet", name, () -> replacer.replaceSet(name, data, expireTime(time)));
+    }
+
+    /**
+     * 替换set集合的全部数据
+     * @param name
+     * @param data
+     * @return 替换统计
+     */
+    public <T> ReplaceResult replaceSet(String name, Set<T> data) {
+        return replaceSet(name, data, redissonProperties.getDataValidTime());
+    }
 
+    /**
+     * 按页遍历map集合,通过HSCAN每次读取pageSize条,内存占用与集合大小无关
+     * @param name
+     * @return
+     */
+    public <K, V> Iterator<Map.Entry<K, V>> iterateMap(String name) {
+        RMap<K, V> map = redissonRouter.route(name).getMap(name);
+        touch(name);
+        return map.entrySet(getPageSize()).iterator();
+    }
 
+    /**
+     * 按页遍历List集合,通过LRANGE每次读取pageSize条
+     * @param name
+     * @return
+     */
+    public <T> Iterator<T> iterateList(String name) {
+        RList<T> list = redissonRouter.route(name).getList(name);
+        touch(name);
+        return new ListPageIterator<>(list, getPageSize());
+    }
+
+    /**
+     * 按页遍历set集合,通过SSCAN每次读取pageSize条
+     * @param name
+     * @return
+     */
+    public <T> Iterator<T> iterateSet(String name) {
+        RSet<T> set = redissonRouter.route(name).getSet(name);
+        touch(name);
+        return set.iterator(getPageSize());
+    }
 
+    /**
+     * 惰性读取map集合的Stream,终止操作时才开始读取
+     * HSCAN遍历期间集合发生rehash时同一条目可能返回多次,需要去重时自行调用distinct()
+     * @param name
+     * @return
+     */
+    public <K, V> Stream<Map.Entry<K, V>> streamMap(String name) {
+        return toStream(iterateMap(name), Spliterator.NONNULL);
+    }
+
+    /**
+     * 惰性读取List集合的Stream
+     * @param name
+     * @return
+     */
+    public <T> Stream<T> streamList(String name) {
+        return toStream(iterateList(name), Spliterator.ORDERED);
+    }
+
+    /**
+     * 惰性读取set集合的Stream
+     * 与streamMap相同,SSCAN可能返回重复元素
+     * @param name
+     * @return
+     */
+    public <T> Stream<T> streamSet(String name) {
+        return toStream(iterateSet(name), Spliterator.NONNULL);
+    }
+
+    /**
+     * 数据写入和replace*使用的版本更新在一个事务中执行
+     */
+    private RBatch atomicBatch(String name) {
+        return redissonRouter.route(name).createBatch(BatchOptions.defaults()
+                .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+    }
+
+    private Long expireTime(Long time) {
+        return ExpirationSupport.jitter(time, redissonProperties.getExpirationConfig());
+    }
+
+    /**
+     * 开启滑动过期时异步续期,不等待结果,遍历不增加延迟
+     */
+    private void touch(String name) {
+        RedissonExpirationConfig expirationConfig = redissonProperties.getExpirationConfig();
+        if (ExpirationSupport.sliding(expirationConfig, redissonProperties.getDataValidTime())) {
+            ExpirationSupport.touchAsync(redissonRouter.route(name).getScript(LongCodec.INSTANCE), name,
+                    ExpirationSupport.slidingTime(expirationConfig, redissonProperties.getDataValidTime()));
+        }
+    }
+
+    private int getPageSize() {
+        return redissonProperties.getCollectionConfig().getPageSize();
+    }
+
+    private static <T> Stream<T> toStream(Iterator<T> iterator, int characteristics) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, characteristics), false);
+    }
+
+    private static <T> Iterator<List<T>> chunks(Iterable<T> data, int chunkSize) {
+        Iterator<T> iterator = data.iterator();
+        return new Iterator<List<T>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<T> chunk = new ArrayList<>(chunkSize);
+                while (iterator.hasNext() && chunk.size() < chunkSize) {
+                    chunk.add(iterator.next());
+                }
+                return chunk;
+            }
+        };
+    }
+
+    private static <K, V> Iterator<Map<K, V>> mapChunks(Map<K, V> data, int chunkSize) {
+        Iterator<Map.Entry<K, V>> iterator = data.entrySet().iterator();
+        return new Iterator<Map<K, V>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Map<K, V> next() {
+                if (!iterator.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map<K, V> chunk = new LinkedHashMap<>();
+                while (iterator.hasNext() && chunk.size() < chunkSize) {
+                    Map.Entry<K, V> entry = iterator.next();
+                    chunk.put(entry.getKey(), entry.getValue());
+                }
+                return chunk;
+            }
+        };
+    }
 
 }
@@ -0,0 +1,182 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.support.ExpirationSupport;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RList;
+import org.redisson.api.RMap;
+import org.redisson.api.RSet;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步操作集合
+ * 开启滑动过期时get*Values读取和续期在同一个管道中发送
+ */
+public class RedissonCollectionAsync {
+
+    @Resource
+    private RedissonRouter redissonRouter;
+
+    @Resource
+    private OperationInterceptor operationInterceptor;
+
+    @Resource
+    private RedissonProperties redissonProperties;
+
+    /**
+     * 获取map集合的全部数据
+     * @param name
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    public <K, V> CompletableFuture<Map<K, V>> getMapValues(String name) {
+        return operationInterceptor.interceptAsync("getMapValues", name, () -> {
+            if (sliding()) {
+                RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+                RFuture<Map<K, V>> future = batch.<K, V>getMap(name).readAllMapAsync();
+                return touch(batch, name, future);
+            }
+            RMap<K, V> map = redissonRouter.route(name).getMap(name);
+            return AsyncSupport.toFuture(map.readAllMapAsync());
+        });
+    }
+
+    /**
+     * 设置map集合
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return
+     */
+    public <K, V> CompletableFuture<Void> setMapValues(String name, Map<K, V> data, Long time) {
+        return operationInterceptor.interceptAsync("setMapValues", name, () -> {
+            RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults()
+                    .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+            batch.<K, V>getMap(name).putAllAsync(data);
+            CollectionReplacer.stampVersion(batch, name, ExpirationSupport.jitter(time, redissonProperties.getExpirationConfig()));
+            return AsyncSupport.toFuture(batch.executeAsync()).thenApply(result -> null);
+        });
+    }
+
+    /**
+     * 设置map集合
+     * @param name
+     * @param data
+     * @return
+     */
+    public <K, V> CompletableFuture<Void> setMapValues(String name, Map<K, V> data) {
+        return setMapValues(name, data, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 获取List集合的全部数据
+     * @param name
+     * @return
+     */
+    public <T> CompletableFuture<List<T>> getListValues(String name) {
+        return operationInterceptor.interceptAsync("getListValues", name, () -> {
+            if (sliding()) {
+                RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+                RFuture<List<T>> future = batch.<T>getList(name).readAllAsync();
+                return touch(batch, name, future);
+            }
+            RList<T> list = redissonRouter.route(name).getList(name);
+            return AsyncSupport.toFuture(list.readAllAsync());
+        });
+    }
+
+    /**
+     * 设置List集合
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return
+     */
+    public <T> CompletableFuture<Void> setListValues(String name, List<T> data, Long time) {
+        return operationInterceptor.interceptAsync("setListValues", name, () -> {
+            RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults()
+                    .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+            batch.<T>getList(name).addAllAsync(data);
+            CollectionReplacer.stampVersion(batch, name, ExpirationSupport.jitter(time, redissonProperties.getExpirationConfig()));
+            return AsyncSupport.toFuture(batch.executeAsync()).thenApply(result -> null);
+        });
+    }
+
+    /**
+     * 设置List集合
+     * @param name
+     * @param data
+     * @return
+     */
+    public <T> CompletableFuture<Void> setListValues(String name, List<T> data) {
+        return setListValues(name, data, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 获取set集合的全部数据
+     * @param name
+     * @return
+     */
+    public <T> CompletableFuture<Set<T>> getSetValues(String name) {
+        return operationInterceptor.interceptAsync("getSetValues", name, () -> {
+            if (sliding()) {
+                RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+                RFuture<Set<T>> future = batch.<T>getSet(name).readAllAsync();
+                return touch(batch, name, future);
+            }
+            RSet<T> set = redissonRouter.route(name).getSet(name);
+            return AsyncSupport.toFuture(set.readAllAsync());
+        });
+    }
+
+    /**
+     * 设置set集合
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return
+     */
+    public <T> CompletableFuture<Void> setSetValues(String name, Set<T> data, Long time) {
+        return operationInterceptor.interceptAsync("setSetValues", name, () -> {
+            RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults()
+                    .executionMode(BatchOptions.ExecutionMode.IN_MEMORY_ATOMIC));
+            batch.<T>getSet(name).addAllAsync(data);
+            CollectionReplacer.stampVersion(batch, name, ExpirationSupport.jitter(time, redissonProperties.getExpirationConfig()));
+            return AsyncSupport.toFuture(batch.executeAsync()).thenApply(result -> null);
+        });
+    }
+
+    /**
+     * 设置set集合
+     * @param name
+     * @param data
+     * @return
+     */
+    public <T> CompletableFuture<Void> setSetValues(String name, Set<T> data) {
+        return setSetValues(name, data, redissonProperties.getDataValidTime());
+    }
+
+    private boolean sliding() {
+        return ExpirationSupport.sliding(redissonProperties.getExpirationConfig(), redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 在读取的管道中追加续期命令后发送
+     */
+    private <T> CompletableFuture<T> touch(RBatch batch, String name, RFuture<T> future) {
+        ExpirationSupport.touchAsync(batch, name,
+                ExpirationSupport.slidingTime(redissonProperties.getExpirationConfig(), redissonProperties.getDataValidTime()));
+        return AsyncSupport.toFuture(batch.executeAsync()).thenApply(result -> future.getNow());
+    }
+
+}
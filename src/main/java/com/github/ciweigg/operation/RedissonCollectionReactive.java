@@ -0,0 +1,148 @@
+package com.github.ciweigg.operation;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 响应式操作集合
+ */
+public class RedissonCollectionReactive {
+
+    @Resource
+    private RedissonCollectionAsync redissonCollectionAsync;
+
+    @Resource
+    private RedissonCollection redissonCollection;
+
+    /**
+     * 获取map集合的全部数据
+     * @param name
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    public <K, V> Mono<Map<K, V>> getMapValues(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.<K, V>getMapValues(name)));
+    }
+
+    /**
+     * 设置map集合
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return
+     */
+    public <K, V> Mono<Void> setMapValues(String name, Map<K, V> data, Long time) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.setMapValues(name, data, time)));
+    }
+
+    /**
+     * 设置map集合
+     * @param name
+     * @param data
+     * @return
+     */
+    public <K, V> Mono<Void> setMapValues(String name, Map<K, V> data) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.setMapValues(name, data)));
+    }
+
+    /**
+     * 获取List集合的全部元素
+     * @param name
+     * @return
+     */
+    public <T> Flux<T> getListValues(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.<T>getListValues(name)))
+                .flatMapIterable(list -> list);
+    }
+
+    /**
+     * 设置List集合
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return
+     */
+    public <T> Mono<Void> setListValues(String name, List<T> data, Long time) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.setListValues(name, data, time)));
+    }
+
+    /**
+     * 设置List集合
+     * @param name
+     * @param data
+     * @return
+     */
+    public <T> Mono<Void> setListValues(String name, List<T> data) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.setListValues(name, data)));
+    }
+
+    /**
+     * 获取set集合的全部元素
+     * @param name
+     * @return
+     */
+    public <T> Flux<T> getSetValues(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.<T>getSetValues(name)))
+                .flatMapIterable(set -> set);
+    }
+
+    /**
+     * 设置set集合
+     * @param name
+     * @param data
+     * @param time 缓存时间,单位毫秒 -1永久缓存
+     * @return
+     */
+    public <T> Mono<Void> setSetValues(String name, Set<T> data, Long time) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.setSetValues(name, data, time)));
+    }
+
+    /**
+     * 设置set集合
+     * @param name
+     * @param data
+     * @return
+     */
+    public <T> Mono<Void> setSetValues(String name, Set<T> data) {
+        return Mono.defer(() -> Mono.fromFuture(redissonCollectionAsync.setSetValues(name, data)));
+    }
+
+    /**
+     * 按页读取map集合,下游请求时才读取下一页
+     * 分页读取是阻塞调用,在elastic线程上执行
+     * @param name
+     * @return
+     */
+    public <K, V> Flux<Map.Entry<K, V>> streamMap(String name) {
+        return Flux.fromIterable(() -> redissonCollection.<K, V>iterateMap(name))
+                .subscribeOn(Schedulers.elastic());
+    }
+
+    /**
+     * 按页读取List集合,下游请求时才读取下一页
+     * @param name
+     * @return
+     */
+    public <T> Flux<T> streamList(String name) {
+        return Flux.fromIterable(() -> redissonCollection.<T>iterateList(name))
+                .subscribeOn(Schedulers.elastic());
+    }
+
+    /**
+     * 按页读取set集合,下游请求时才读取下一页
+     * @param name
+     * @return
+     */
+    public <T> Flux<T> streamSet(String name) {
+        return Flux.fromIterable(() -> redissonCollection.<T>iterateSet(name))
+                .subscribeOn(Schedulers.elastic());
+    }
+
+}
@@ -0,0 +1,312 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonCounterConfig;
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.shard.ShardedBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 计数器
+ * 增量先累加到本地每个键的LongAdder,按flushInterval通过RBatch管道批量写入redis:
+ * 普通计数器对应RAtomicLong(INCRBY),hash计数器对应HINCRBY,同一个键在一个周期内只发送一条命令
+ * 未写入的增量在进程退出时写入,进程异常退出会丢失最后一个周期的增量
+ * 写入失败的增量放回本地重试,语义为至少一次:命令超时时redis可能已经执行,重试会重复累加
+ * get读取redis值加上本地未写入的增量,getExact先把该键的本地增量写入redis再读取
+ */
+@Slf4j
+public class RedissonCounter {
+
+    private static final String HINCRBY_SCRIPT = "return redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2]);";
+
+    @Resource
+    private RedissonRouter redissonRouter;
+
+    @Resource
+    private RedissonProperties redissonProperties;
+
+    @Resource
+    private OperationInterceptor operationInterceptor;
+
+    private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>();
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @PostConstruct
+    public void init() {
+        RedissonCounterConfig counterConfig = redissonProperties.getCounterConfig();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-counter-");
+        threadFactory.setDaemon(true);
+        scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, counterConfig.getFlushInterval(), counterConfig.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * 计数器加1
+     *
+     * @param name 键
+     */
+    public void increment(String name) {
+        increment(name, 1);
+    }
+
+    /**
+     * 计数器增加delta,只在本地累加
+     *
+     * @param name  键
+     * @param delta 增量,可以为负数
+     */
+    public void increment(String name, long delta) {
+        add(new CounterKey(name, null), delta);
+    }
+
+    /**
+     * hash计数器的字段增加delta,只在本地累加
+     *
+     * @param name  键
+     * @param field 字段
+     * @param delta 增量,可以为负数
+     */
+    public void increment(String name, String field, long delta) {
+        add(new CounterKey(name, Objects.requireNonNull(field)), delta);
+    }
+
+    /**
+     * 近似值: redis中的值加上本节点未写入的增量,不包括其它节点未写入的增量
+     *
+     * @param name 键
+     * @return
+     */
+    public long get(String name) {
+        CounterKey key = new CounterKey(name, null);
+        return operationInterceptor.intercept("getCounter", name, () -> read(key) + pending(key));
+    }
+
+    /**
+     * hash计数器字段的近似值
+     *
+     * @param name  键
+     * @param field 字段
+     * @return
+     */
+    public long get(String name, String field) {
+        CounterKey key = new CounterKey(name, Objects.requireNonNull(field));
+        return operationInterceptor.intercept("getCounter", name, () -> read(key) + pending(key));
+    }
+
+    /**
+     * 先把本节点该键未写入的增量同步写入redis,再读取redis中的值
+     *
+     * @param name 键
+     * @return
+     */
+    public long getExact(String name) {
+        CounterKey key = new CounterKey(name, null);
+        return operationInterceptor.intercept("getCounterExact", name, () -> {
+            flush(Collections.singletonList(key));
+            return read(key);
+        });
+    }
+
+    /**
+     * hash计数器字段的精确值
+     *
+     * @param name  键
+     * @param field 字段
+     * @return
+     */
+    public long getExact(String name, String field) {
+        CounterKey key = new CounterKey(name, Objects.requireNonNull(field));
+        return operationInterceptor.intercept("getCounterExact", name, () -> {
+            flush(Collections.singletonList(key));
+            return read(key);
+        });
+    }
+
+    /**
+     * 把本节点全部未写入的增量立即写入redis
+     */
+    public void flush() {
+        operationInterceptor.executeBatch("flushCounters", Collections.emptyList(), () -> flush(new ArrayList<>(counters.keySet())));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("redisson counter flush failed, deltas kept for retry", e);
+        }
+    }
+
+    private void add(CounterKey key, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        Counter counter = counters.computeIfAbsent(key, k -> new Counter());
+        counter.adder.add(delta);
+        if (counter.retired) {
+            //计数器刚被移除,把增量转到新的计数器上
+            long leftover = counter.drainRetired();
+            if (leftover != 0) {
+                add(key, leftover);
+            }
+        }
+    }
+
+    private long pending(CounterKey key) {
+        Counter counter = counters.get(key);
+        return counter == null ? 0 : counter.adder.sum();
+    }
+
+    private long read(CounterKey key) {
+        if (key.field == null) {
+            return redissonRouter.route(key.name).getAtomicLong(key.name).get();
+        }
+        String value = redissonRouter.route(key.name).<String, String>getMap(key.name, StringCodec.INSTANCE).get(key.field);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 取出各键的增量按batchSize分批写入,失败的增量放回本地
+     * 上个周期没有增量的键从本地移除
+     */
+    private synchronized void flush(List<CounterKey> keys) {
+        Map<CounterKey, Long> deltas = new LinkedHashMap<>();
+        for (CounterKey key : keys) {
+            Counter counter = counters.get(key);
+            if (counter == null) {
+                continue;
+            }
+            long delta = counter.drain();
+            if (delta == 0 && counters.remove(key, counter)) {
+                delta = counter.drainRetired();
+            }
+            if (delta != 0) {
+                deltas.put(key, delta);
+            }
+        }
+        int batchSize = redissonProperties.getCounterConfig().getBatchSize();
+        List<Map.Entry<CounterKey, Long>> entries = new ArrayList<>(deltas.entrySet());
+        RuntimeException failure = null;
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<Map.Entry<CounterKey, Long>> chunk = entries.subList(from, Math.min(from + batchSize, entries.size()));
+            RuntimeException e = write(chunk);
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private RuntimeException write(List<Map.Entry<CounterKey, Long>> chunk) {
+        ShardedBatch batch = new ShardedBatch(redissonRouter);
+        List<RFuture<?>> futures = new ArrayList<>(chunk.size());
+        for (Map.Entry<CounterKey, Long> entry : chunk) {
+            CounterKey key = entry.getKey();
+            if (key.field == null) {
+                futures.add(batch.batchFor(key.name).getAtomicLong(key.name).addAndGetAsync(entry.getValue()));
+            } else {
+                futures.add(batch.batchFor(key.name).getScript(StringCodec.INSTANCE).evalAsync(RScript.Mode.READ_WRITE,
+                        HINCRBY_SCRIPT, RScript.ReturnType.INTEGER, Collections.singletonList(key.name), key.field, entry.getValue()));
+            }
+        }
+        RuntimeException failure = null;
+        try {
+            batch.execute();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        if (failure != null) {
+            //放回没有确认成功的命令;超时的命令可能已在redis执行,重试时会重复累加(至少一次)
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!futures.get(i).isSuccess()) {
+                    add(chunk.get(i).getKey(), chunk.get(i).getValue());
+                }
+            }
+        }
+        return failure;
+    }
+
+    private static class Counter {
+
+        private final LongAdder adder = new LongAdder();
+
+        /**
+         * 已从计数器表中移除,之后的增量由增加方或flush在同步块内取出
+         */
+        private volatile boolean retired;
+
+        /**
+         * 取出当前增量,只由flush线程调用;用sum和add(-sum)代替sumThenReset,并发累加不会丢失
+         */
+        long drain() {
+            long sum = adder.sum();
+            if (sum != 0) {
+                adder.add(-sum);
+            }
+            return sum;
+        }
+
+        synchronized long drainRetired() {
+            retired = true;
+            return drain();
+        }
+    }
+
+    private static class CounterKey {
+
+        private final String name;
+
+        private final String field;
+
+        CounterKey(String name, String field) {
+            this.name = name;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CounterKey)) {
+                return false;
+            }
+            CounterKey that = (CounterKey) o;
+            return name.equals(that.name) && Objects.equals(field, that.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Objects.hashCode(field);
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.properties.RedissonLockConfig;
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import org.redisson.api.RLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 本地合并的分布式锁
+ * 同一个锁名称在本节点的线程先在本地公平锁上排队,只有队首线程持有redis锁;
+ * 释放时本地还有线程在等待则把redis锁直接移交给下一个线程,不经过redis释放再获取,
+ * 连续移交maxLocalHandoffs次后释放一次redis锁,避免其它节点一直拿不到锁
+ * redis锁以每个锁名称独立的虚拟线程id持有,本节点任意线程都可以释放,未指定租期时由redisson看门狗续期
+ * 锁是可重入的,lock和unlock必须在同一个线程成对调用
+ */
+public class RedissonLocks {
+
+    /**
+     * 虚拟线程id,取负数避免与真实线程id冲突
+     */
+    private static final AtomicLong REMOTE_IDS = new AtomicLong(Long.MIN_VALUE);
+
+    @Resource
+    private RedissonRouter redissonRouter;
+
+    @Resource
+    private RedissonProperties redissonProperties;
+
+    private Stripe[] stripes;
+
+    @PostConstruct
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(1, getLockConfig().getStripes()));
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * 获取锁,一直等待到获取成功
+     *
+     * @param name 锁名称
+     */
+    public void lock(String name) {
+        LocalLock localLock = acquire(name);
+        localLock.lock.lock();
+        try {
+            lockRemote(localLock, -1);
+        } catch (RuntimeException e) {
+            localLock.lock.unlock();
+            release(localLock);
+            throw e;
+        }
+    }
+
+    /**
+     * 尝试获取锁
+     *
+     * @param name     锁名称
+     * @param waitTime 最长等待时间,包括本地排队和redis等待
+     * @param unit     时间单位
+     * @return true 获取成功
+     */
+    public boolean tryLock(String name, long waitTime, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(waitTime);
+        LocalLock localLock = acquire(name);
+        try {
+            if (!localLock.lock.tryLock(waitTime, unit)) {
+                release(localLock);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            release(localLock);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        boolean locked = false;
+        try {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            locked = lockRemote(localLock, Math.max(0, remaining));
+            return locked;
+        } finally {
+            if (!locked) {
+                localLock.lock.unlock();
+                release(localLock);
+            }
+        }
+    }
+
+    /**
+     * 释放锁
+     *
+     * @param name 锁名称
+     */
+    public void unlock(String name) {
+        LocalLock localLock = find(name);
+        if (localLock == null || !localLock.lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("lock " + name + " is not held by current thread");
+        }
+        try {
+            if (localLock.lock.getHoldCount() == 1) {
+                unlockRemote(localLock);
+            }
+        } finally {
+            localLock.lock.unlock();
+            release(localLock);
+        }
+    }
+
+    /**
+     * 持有锁执行
+     *
+     * @param name   锁名称
+     * @param action 执行内容
+     * @return 执行结果
+     */
+    public <T> T executeLocked(String name, Supplier<T> action) {
+        lock(name);
+        try {
+            return action.get();
+        } finally {
+            unlock(name);
+        }
+    }
+
+    /**
+     * 当前线程是否持有锁
+     *
+     * @param name 锁名称
+     * @return
+     */
+    public boolean isHeldByCurrentThread(String name) {
+        LocalLock localLock = find(name);
+        return localLock != null && localLock.lock.isHeldByCurrentThread();
+    }
+
+    /**
+     * 已持有本地锁,按需获取redis锁
+     *
+     * @param waitTime 等待时间 单位毫秒,-1一直等待
+     * @return false 等待超时
+     */
+    private boolean lockRemote(LocalLock localLock, long waitTime) {
+        if (localLock.lock.getHoldCount() > 1 || localLock.remoteHeld) {
+            //重入或者从本节点上一个持有者移交
+            return true;
+        }
+        RLock rLock = redissonRouter.route(localLock.name).getLock(localLock.name);
+        try {
+            if (waitTime < 0) {
+                rLock.lockAsync(localLock.remoteId).get();
+            } else if (!rLock.tryLockAsync(waitTime, -1, TimeUnit.MILLISECONDS, localLock.remoteId).get()) {
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        localLock.remoteHeld = true;
+        localLock.handoffs = 0;
+        return true;
+    }
+
+    /**
+     * 最后一次unlock时调用,本地有线程在等待时移交,否则释放redis锁
+     */
+    private void unlockRemote(LocalLock localLock) {
+        if (localLock.lock.hasQueuedThreads() && localLock.handoffs < getLockConfig().getMaxLocalHandoffs()) {
+            localLock.handoffs++;
+            return;
+        }
+        localLock.remoteHeld = false;
+        RLock rLock = redissonRouter.route(localLock.name).getLock(localLock.name);
+        try {
+            rLock.unlockAsync(localLock.remoteId).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private LocalLock acquire(String name) {
+        Stripe stripe = stripeFor(name);
+        synchronized (stripe) {
+            LocalLock localLock = stripe.computeIfAbsent(name, LocalLock::new);
+            localLock.references++;
+            return localLock;
+        }
+    }
+
+    private void release(LocalLock localLock) {
+        Stripe stripe = stripeFor(localLock.name);
+        synchronized (stripe) {
+            if (--localLock.references != 0) {
+                return;
+            }
+            stripe.remove(localLock.name);
+        }
+        if (localLock.remoteHeld) {
+            //移交给的线程等待超时放弃,没有线程再使用时释放redis锁
+            localLock.remoteHeld = false;
+            redissonRouter.route(localLock.name).getLock(localLock.name).unlockAsync(localLock.remoteId);
+        }
+    }
+
+    private LocalLock find(String name) {
+        Stripe stripe = stripeFor(name);
+        synchronized (stripe) {
+            return stripe.get(name);
+        }
+    }
+
+    private Stripe stripeFor(String name) {
+        int h = name.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    private RedissonLockConfig getLockConfig() {
+        return redissonProperties.getLockConfig();
+    }
+
+    /**
+     * 锁名称到本地锁的映射,读写都在synchronized(stripe)内
+     */
+    private static class Stripe extends HashMap<String, LocalLock> {
+    }
+
+    private static class LocalLock {
+
+        private final String name;
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+
+        private final long remoteId = REMOTE_IDS.getAndIncrement();
+
+        /**
+         * 正在使用或等待该锁的线程数,为0时从锁表中移除,在stripe锁内修改
+         */
+        private int references;
+
+        /**
+         * 是否持有redis锁,只由本地锁的持有者修改
+         */
+        private volatile boolean remoteHeld;
+
+        private int handoffs;
+
+        LocalLock(String name) {
+            this.name = name;
+        }
+    }
+
+}
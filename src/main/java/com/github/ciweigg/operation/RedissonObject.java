@@ -1,11 +1,50 @@
 package com.github.ciweigg.operation;
 
+import com.github.ciweigg.cache.NearCache;
+import com.github.ciweigg.cache.NegativeLookupGuard;
+import com.github.ciweigg.cache.OffHeapCache;
+import com.github.ciweigg.codec.ByteBufferCodec;
+import com.github.ciweigg.codec.CodecSupport;
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonBigValueConfig;
+import com.github.ciweigg.properties.RedissonLoaderConfig;
+import com.github.ciweigg.properties.RedissonNearCacheConfig;
 import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.properties.RedissonWriteBehindConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.shard.ShardedBatch;
+import com.github.ciweigg.support.ExpirationSupport;
+import com.github.ciweigg.support.KeySupport;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
 import org.redisson.api.RBucket;
+import org.redisson.api.RFuture;
+import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 操作对象
@@ -15,30 +54,406 @@ public class RedissonObject {
     @Resource
     private RedissonClient redissonClient;
 
+    @Resource
+    private RedissonRouter redissonRouter;
+
     @Resource
     private RedissonProperties redissonProperties;
 
+    @Resource
+    private OperationInterceptor operationInterceptor;
+
+    @Autowired(required = false)
+    private NegativeLookupGuard negativeLookupGuard;
+
+    @Autowired(required = false)
+    private OffHeapCache offHeapCache;
+
+    private NearCache nearCache;
+
+    /**
+     * 本节点正在加载的键,同一个键的并发加载共用一次结果
+     */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点正在后台提前刷新的键
+     */
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor refreshExecutor;
+
+    private WriteBehindBuffer writeBehind;
+
+    private BigValueStore bigValues;
+
+    @PostConstruct
+    public void init() {
+        RedissonNearCacheConfig nearCacheConfig = redissonProperties.getNearCacheConfig();
+        if (nearCacheConfig != null && nearCacheConfig.getEnabled()) {
+            nearCache = new NearCache(redissonClient, nearCacheConfig);
+        }
+        RedissonLoaderConfig loaderConfig = redissonProperties.getLoaderConfig();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-refresh-");
+        threadFactory.setDaemon(true);
+        refreshExecutor = new ThreadPoolExecutor(loaderConfig.getRefreshThreads(), loaderConfig.getRefreshThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(loaderConfig.getRefreshQueueSize()),
+                threadFactory, new ThreadPoolExecutor.DiscardPolicy());
+        RedissonWriteBehindConfig writeBehindConfig = redissonProperties.getWriteBehindConfig();
+        if (writeBehindConfig != null && writeBehindConfig.getEnabled()) {
+            writeBehind = new WriteBehindBuffer(redissonRouter, writeBehindConfig, this::invalidate);
+        }
+        RedissonBigValueConfig bigValueConfig = redissonProperties.getBigValueConfig();
+        if (bigValueConfig != null && bigValueConfig.getEnabled()) {
+            if (writeBehind != null) {
+                throw new IllegalStateException("redisson.bigValueConfig and redisson.writeBehindConfig cannot be enabled together");
+            }
+            bigValues = new BigValueStore(redissonRouter, bigValueConfig);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+        if (nearCache != null) {
+            nearCache.shutdown();
+        }
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 把延迟写入缓冲中的值立即写入redis,未开启延迟写入时什么都不做
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            operationInterceptor.executeBatch("flush", Collections.emptyList(), writeBehind::flush);
+        }
+    }
+
     /**
      * 获取对象值
+     * 开启近端缓存时优先读取本地,本地命中返回的是同一个对象实例,调用方不要修改
+     * 开启堆外缓存时大值保存在堆外,命中时解码出新的实例
+     * 开启滑动过期时读取redis的同时续期,本地缓存命中时不访问redis,也不续期
      *
      * @param name
      * @param <T>
      * @return
      */
     public <T> T getValue(String name) {
-        RBucket<T> bucket = redissonClient.getBucket(name);
-        return bucket.get();
+        T value = operationInterceptor.intercept("getValue", name, () -> readValue(name));
+        if (value != null) {
+            operationInterceptor.onHit("getValue", name);
+        } else {
+            operationInterceptor.onMiss("getValue", name);
+        }
+        return value;
+    }
+
+    private <T> T readValue(String name) {
+        T buffered = readBuffered(name);
+        if (buffered != null) {
+            return buffered;
+        }
+        if (nearCache == null && offHeapCache == null) {
+            return fetch("getValue", name);
+        }
+        if (nearCache != null) {
+            Object cached = nearCache.get(name);
+            if (cached != null) {
+                return (T) cached;
+            }
+        }
+        if (offHeapCache != null) {
+            byte[] encoded = offHeapCache.get(name);
+            if (encoded != null) {
+                return CodecSupport.decode(redissonClient.getConfig().getCodec(), encoded);
+            }
+        }
+        long generation = nearCache == null ? 0 : nearCache.generation(name);
+        long offHeapGeneration = offHeapCache == null ? 0 : offHeapCache.generation(name);
+        //只解码一次,读到的字节原样放入堆外缓存
+        byte[] raw = fetchRaw("getValue", name);
+        T value = decode(name, raw);
+        if (value != null && offHeapCache != null && offHeapCache.put(name, raw, offHeapGeneration)) {
+            //大值只放在堆外
+            return value;
+        }
+        if (nearCache != null) {
+            nearCache.put(name, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * 获取对象值,不存在时调用loader加载并写入
+     * 本节点同一个键的并发加载只执行一次,多个节点之间通过分布式锁只由一个节点加载,
+     * 其它节点等待锁释放后直接读取加载结果
+     * 接近过期时按加载耗时概率性地在后台提前刷新(XFetch),热点键在有访问的情况下不会过期
+     * 开启防缓存穿透时,redis中不存在且布隆过滤器判断不存在的键直接返回null,不调用loader;
+     * 加载结果为空时缓存一个短时间的空值标记,不为空时把键登记到布隆过滤器
+     * 该方法总是读取redis,不走近端缓存;不做滑动续期,热点键由提前刷新保证不过期
+     *
+     * @param name   键
+     * @param loader 加载数据,返回null时不缓存
+     * @param time   缓存时间 单位毫秒 -1 永久缓存
+     * @param <T>
+     * @return
+     */
+    public <T> T getOrLoad(String name, Supplier<T> loader, Long time) {
+        return operationInterceptor.intercept("getOrLoad", name, () -> {
+            T buffered = readBuffered(name);
+            if (buffered != null) {
+                operationInterceptor.onHit("getOrLoad", name);
+                return buffered;
+            }
+            RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+            RFuture<byte[]> valueFuture = batch.<byte[]>getBucket(name, ByteBufferCodec.INSTANCE).getAsync();
+            RFuture<Long> ttlFuture = batch.getBucket(name).remainTimeToLiveAsync();
+            RFuture<Long> costFuture = batch.<Long>getBucket(costKey(name), LongCodec.INSTANCE).getAsync();
+            RFuture<Long> nullMarkerFuture = nullMarkerEnabled()
+                    ? batch.<Long>getBucket(nullMarkerKey(name), LongCodec.INSTANCE).getAsync()
+                    : null;
+            batch.execute();
+            byte[] raw = bigValues == null
+                    ? valueFuture.getNow()
+                    : AsyncSupport.join(bigValues.resolveRawAsync(name, valueFuture.getNow()));
+            if (raw != null) {
+                operationInterceptor.onPayload("getOrLoad", name, raw.length);
+            }
+            T value = decode(name, raw);
+            if (value == null) {
+                operationInterceptor.onMiss("getOrLoad", name);
+                if (nullMarkerFuture != null && nullMarkerFuture.getNow() != null) {
+                    negativeLookupGuard.onNullMarkerHit();
+                    return null;
+                }
+                //只在redis未命中、即将访问数据源时判断,首次同步之前不拦截
+                boolean guarded = negativeLookupGuard != null && negativeLookupGuard.isReady();
+                if (guarded && !negativeLookupGuard.mightContain(name)) {
+                    return null;
+                }
+                T loaded = load(name, loader, time);
+                if (loaded == null && guarded) {
+                    negativeLookupGuard.onFalsePositive();
+                }
+                return loaded;
+            }
+            operationInterceptor.onHit("getOrLoad", name);
+            if (shouldRefreshEarly(ttlFuture.getNow(), costFuture.getNow())) {
+                refreshAsync(name, loader, time);
+            }
+            return value;
+        });
+    }
+
+    /**
+     * 获取对象值,不存在时调用loader加载并写入
+     *
+     * @param name   键
+     * @param loader 加载数据,返回null时不缓存
+     * @param <T>
+     * @return
+     */
+    public <T> T getOrLoad(String name, Supplier<T> loader) {
+        return getOrLoad(name, loader, redissonProperties.getDataValidTime());
+    }
+
+    private <T> T load(String name, Supplier<T> loader, Long time) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(name, future);
+        if (existing != null) {
+            try {
+                //等待本节点其它线程加载期间不占用限流额度
+                return (T) operationInterceptor.suspend(existing::join);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        try {
+            T value = loadLocked(name, loader, time);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(name, future);
+        }
+    }
+
+    private <T> T loadLocked(String name, Supplier<T> loader, Long time) {
+        RedissonLoaderConfig loaderConfig = redissonProperties.getLoaderConfig();
+        RLock lock = loadLock(name);
+        boolean locked = operationInterceptor.suspend(() -> {
+            try {
+                return lock.tryLock(loaderConfig.getLockWaitTime(), loaderConfig.getLockLeaseTime(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        });
+        try {
+            //等待锁期间其它节点可能已经加载完成
+            T value = fetch("getOrLoad", name);
+            if (value != null) {
+                return value;
+            }
+            return loadAndStore(name, loader, time);
+        } finally {
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private <T> void refreshAsync(String name, Supplier<T> loader, Long time) {
+        if (!refreshing.add(name)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                RLock lock = loadLock(name);
+                boolean locked = false;
+                try {
+                    //其它节点正在加载或刷新时直接放弃
+                    locked = lock.tryLock(0, redissonProperties.getLoaderConfig().getLockLeaseTime(), TimeUnit.MILLISECONDS);
+                    if (locked) {
+                        loadAndStore(name, loader, time);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    //刷新失败时保留旧值,下次读取再尝试
+                } finally {
+                    if (locked && lock.isHeldByCurrentThread()) {
+                        lock.unlock();
+                    }
+                    refreshing.remove(name);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(name);
+        }
+    }
+
+    private <T> T loadAndStore(String name, Supplier<T> loader, Long time) {
+        long start = System.nanoTime();
+        T value = operationInterceptor.suspend(loader);
+        long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (value == null) {
+            if (nullMarkerEnabled()) {
+                redissonRouter.route(name).getBucket(nullMarkerKey(name), LongCodec.INSTANCE)
+                        .set(1L, redissonProperties.getNegativeLookupConfig().getNullMarkerTtl(), TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }
+        Long ttl = expireTime(time);
+        byte[] bytes = encode(name, value);
+        operationInterceptor.onPayload("getOrLoad", name, bytes.length);
+        if (bigValues != null) {
+            bigValues.setEncoded(name, bytes, ttl);
+        }
+        RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+        if (ttl == -1) {
+            if (bigValues == null) {
+                batch.getBucket(name, ByteBufferCodec.INSTANCE).setAsync(bytes);
+            }
+            batch.getBucket(costKey(name), LongCodec.INSTANCE).setAsync(cost);
+        } else {
+            if (bigValues == null) {
+                batch.getBucket(name, ByteBufferCodec.INSTANCE).setAsync(bytes, ttl, TimeUnit.MILLISECONDS);
+            }
+            batch.getBucket(costKey(name), LongCodec.INSTANCE).setAsync(cost, ttl, TimeUnit.MILLISECONDS);
+        }
+        if (nullMarkerEnabled()) {
+            batch.getBucket(nullMarkerKey(name)).deleteAsync();
+        }
+        batch.execute();
+        invalidate(name);
+        if (negativeLookupGuard != null) {
+            //加载到的键可能写入时没有登记,或者登记时过滤器还未同步
+            negativeLookupGuard.put(Collections.singletonList(name));
+        }
+        return value;
+    }
+
+    /**
+     * XFetch: 剩余时间 <= 加载耗时 * beta * -ln(random) 时提前刷新,
+     * 越接近过期、加载越慢,刷新的概率越大
+     *
+     * @param remainTime 剩余存活时间 单位毫秒,-1永久 -2不存在
+     * @param cost       上次加载耗时 单位毫秒
+     * @return
+     */
+    private boolean shouldRefreshEarly(Long remainTime, Long cost) {
+        double beta = redissonProperties.getLoaderConfig().getEarlyRefreshBeta();
+        if (beta <= 0 || remainTime == null || remainTime < 0 || cost == null) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        return -Math.max(cost, 1) * beta * Math.log(random) >= remainTime;
+    }
+
+    private RLock loadLock(String name) {
+        return redissonRouter.route(name).getLock(KeySupport.sameSlotKey(name, ":load-lock"));
+    }
+
+    private String costKey(String name) {
+        return KeySupport.sameSlotKey(name, ":load-cost");
+    }
+
+    private String nullMarkerKey(String name) {
+        return KeySupport.sameSlotKey(name, ":null");
+    }
+
+    private boolean nullMarkerEnabled() {
+        return negativeLookupGuard != null && redissonProperties.getNegativeLookupConfig().getNullMarkerTtl() > 0;
+    }
+
+    /**
+     * 登记存在的键,开启防缓存穿透时getOrLoad只加载登记过的键,未开启时什么都不做
+     *
+     * @param names 键
+     */
+    public void registerKeys(String... names) {
+        registerKeys(Arrays.asList(names));
+    }
+
+    /**
+     * 批量登记存在的键,用于启动时导入已有数据
+     *
+     * @param names 键
+     */
+    public void registerKeys(Collection<String> names) {
+        if (negativeLookupGuard != null) {
+            operationInterceptor.executeBatch("registerKeys", names, () -> negativeLookupGuard.put(names));
+        }
+    }
+
+    /**
+     * 键是否可能存在,未开启防缓存穿透时总是返回true
+     * 自行读取数据源的调用方在getValue未命中后先判断,返回false时数据一定不存在
+     *
+     * @param name 键
+     * @return
+     */
+    public boolean mightExist(String name) {
+        return negativeLookupGuard == null || negativeLookupGuard.mightContain(name);
     }
 
     /**
      * 获取对象空间
+     * 直接通过RBucket写入不会失效近端缓存
      *
      * @param name
      * @param <T>
      * @return
      */
     public <T> RBucket<T> getBucket(String name) {
-        return redissonClient.getBucket(name);
+        return redissonRouter.route(name).getBucket(name);
     }
 
     /**
@@ -54,6 +469,7 @@ public class RedissonObject {
 
     /**
      * 设置对象的值
+     * 开启延迟写入时只放入本地缓冲,本节点立即可读,其它节点在写入redis之后可读
      *
      * @param name  键
      * @param value 值
@@ -61,12 +477,26 @@ public class RedissonObject {
      * @return
      */
     public <T> void setValue(String name, T value, Long time) {
-        RBucket<Object> bucket = redissonClient.getBucket(name);
-        if(time==-1){
-            bucket.set(value);
-        }else {
-            bucket.set(value, time, TimeUnit.MILLISECONDS);
-        }
+        operationInterceptor.execute("setValue", name, () -> {
+            Long ttl = expireTime(time);
+            if (bufferWrite(name, value, ttl)) {
+                return;
+            }
+            byte[] bytes = encode(name, value);
+            operationInterceptor.onPayload("setValue", name, bytes.length);
+            if (bigValues != null) {
+                bigValues.setEncoded(name, bytes, ttl);
+                invalidate(name);
+                return;
+            }
+            RBucket<byte[]> bucket = redissonRouter.route(name).getBucket(name, ByteBufferCodec.INSTANCE);
+            if(ttl==-1){
+                bucket.set(bytes);
+            }else {
+                bucket.set(bytes, ttl, TimeUnit.MILLISECONDS);
+            }
+            invalidate(name);
+        });
     }
 
     /**
@@ -78,14 +508,27 @@ public class RedissonObject {
      * @return true 设置成功,false 值存在,不设置
      */
     public <T> Boolean trySetValue(String name, T value, Long time) {
-        RBucket<Object> bucket = redissonClient.getBucket(name);
-        boolean b;
-        if(time==-1){
-            b = bucket.trySet(value);
-        }else {
-            b = bucket.trySet(value, time, TimeUnit.MILLISECONDS);
-        }
-        return b;
+        return operationInterceptor.intercept("trySetValue", name, () -> {
+            if (readBuffered(name) != null) {
+                return false;
+            }
+            RBucket<byte[]> bucket = redissonRouter.route(name).getBucket(name, ByteBufferCodec.INSTANCE);
+            Long ttl = expireTime(time);
+            byte[] bytes = encode(name, value);
+            operationInterceptor.onPayload("trySetValue", name, bytes.length);
+            boolean b;
+            if (bigValues != null) {
+                b = bigValues.trySetEncoded(name, bytes, ttl);
+            } else if(ttl==-1){
+                b = bucket.trySet(bytes);
+            }else {
+                b = bucket.trySet(bytes, ttl, TimeUnit.MILLISECONDS);
+            }
+            if (b) {
+                invalidate(name);
+            }
+            return b;
+        });
     }
 
     /**
@@ -106,10 +549,284 @@ public class RedissonObject {
      * @return true 删除成功,false 不成功
      */
     public Boolean delete(String name) {
-        return redissonClient.getBucket(name).delete();
+        return operationInterceptor.intercept("delete", name, () -> {
+            discardBuffered(name);
+            boolean deleted = bigValues != null ? bigValues.delete(name) : redissonRouter.route(name).getBucket(name).delete();
+            invalidate(name);
+            return deleted;
+        });
     }
 
+    /**
+     * 批量获取对象值
+     * 通过RBatch管道一次往返完成,集群和分片模式下按节点分组并行发送
+     *
+     * @param names 键
+     * @param <T>
+     * @return 按传入顺序排列,不存在的键不包含在结果中
+     */
+    public <T> Map<String, T> getValues(Collection<String> names) {
+        if (names.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        return operationInterceptor.interceptBatch("getValues", names, () -> readValues(names));
+    }
 
+    private <T> Map<String, T> readValues(Collection<String> names) {
+        Map<String, T> found = new HashMap<>();
+        List<String> misses = new ArrayList<>(names.size());
+        for (String name : names) {
+            Object cached = readBuffered(name);
+            if (cached == null && nearCache != null) {
+                cached = nearCache.get(name);
+            }
+            if (cached != null) {
+                found.put(name, (T) cached);
+            } else {
+                misses.add(name);
+            }
+        }
+        if (!misses.isEmpty()) {
+            Map<String, Long> generations = new HashMap<>();
+            if (nearCache != null) {
+                for (String name : misses) {
+                    generations.put(name, nearCache.generation(name));
+                }
+            }
+            for (Map.Entry<String, T> entry : this.<T>fetchAll(misses).entrySet()) {
+                found.put(entry.getKey(), entry.getValue());
+                if (nearCache != null) {
+                    nearCache.put(entry.getKey(), entry.getValue(), generations.get(entry.getKey()));
+                }
+            }
+        }
+        Map<String, T> result = new LinkedHashMap<>();
+        for (String name : names) {
+            T value = found.get(name);
+            if (value != null) {
+                result.put(name, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 批量设置对象的值
+     *
+     * @param values 键值
+     * @param time   缓存时间 单位毫秒 -1 永久缓存
+     */
+    public <T> void setValues(Map<String, T> values, Long time) {
+        if (values.isEmpty()) {
+            return;
+        }
+        operationInterceptor.executeBatch("setValues", values.keySet(), () -> {
+            values.keySet().forEach(this::discardBuffered);
+            if (bigValues != null) {
+                //分片写入需要先写分片再替换清单,逐个写入
+                values.forEach((name, value) -> {
+                    byte[] bytes = encode(name, value);
+                    operationInterceptor.onPayload("setValues", name, bytes.length);
+                    bigValues.setEncoded(name, bytes, expireTime(time));
+                });
+                invalidate(values.keySet().toArray(new String[0]));
+                return;
+            }
+            ShardedBatch batch = new ShardedBatch(redissonRouter);
+            for (Map.Entry<String, T> entry : values.entrySet()) {
+                RBatch shard = batch.batchFor(entry.getKey());
+                byte[] bytes = encode(entry.getKey(), entry.getValue());
+                operationInterceptor.onPayload("setValues", entry.getKey(), bytes.length);
+                //每个键单独抖动,同一批写入的键不会同时过期
+                Long ttl = expireTime(time);
+                if (ttl == -1) {
+                    shard.getBucket(entry.getKey(), ByteBufferCodec.INSTANCE).setAsync(bytes);
+                } else {
+                    shard.getBucket(entry.getKey(), ByteBufferCodec.INSTANCE).setAsync(bytes, ttl, TimeUnit.MILLISECONDS);
+                }
+            }
+            batch.execute();
+            invalidate(values.keySet().toArray(new String[0]));
+        });
+    }
+
+    /**
+     * 批量设置对象的值
+     *
+     * @param values 键值
+     */
+    public <T> void setValues(Map<String, T> values) {
+        setValues(values, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 批量删除对象
+     *
+     * @param names 键
+     * @return 删除成功的数量
+     */
+    public long deleteAll(Collection<String> names) {
+        if (names.isEmpty()) {
+            return 0;
+        }
+        return operationInterceptor.interceptBatch("deleteAll", names, () -> {
+            names.forEach(this::discardBuffered);
+            if (bigValues != null) {
+                long deleted = bigValues.deleteAll(names);
+                invalidate(names.toArray(new String[0]));
+                return deleted;
+            }
+            ShardedBatch batch = new ShardedBatch(redissonRouter);
+            List<RFuture<Boolean>> futures = new ArrayList<>(names.size());
+            for (String name : names) {
+                futures.add(batch.batchFor(name).getBucket(name).deleteAsync());
+            }
+            batch.execute();
+            invalidate(names.toArray(new String[0]));
+            long deleted = 0;
+            for (RFuture<Boolean> future : futures) {
+                if (Boolean.TRUE.equals(future.getNow())) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        });
+    }
+
+    private <T> T fetch(String operation, String name) {
+        return decode(name, fetchRaw(operation, name));
+    }
+
+    /**
+     * 读取编码后的字节,不解码,大值已拼接完整
+     *
+     * @param operation 操作名称,用于统计传输字节数
+     * @param name      键
+     * @return 不存在时为null
+     */
+    private byte[] fetchRaw(String operation, String name) {
+        byte[] raw;
+        if (bigValues != null) {
+            raw = bigValues.getRaw(name);
+        } else if (slidingEnabled()) {
+            //读取和续期在同一个管道中发送
+            RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+            RFuture<byte[]> future = batch.<byte[]>getBucket(name, ByteBufferCodec.INSTANCE).getAsync();
+            ExpirationSupport.touchAsync(batch, name, slidingTime());
+            batch.execute();
+            raw = future.getNow();
+        } else {
+            RBucket<byte[]> bucket = redissonRouter.route(name).getBucket(name, ByteBufferCodec.INSTANCE);
+            raw = bucket.get();
+        }
+        if (raw != null) {
+            operationInterceptor.onPayload(operation, name, raw.length);
+        }
+        return raw;
+    }
+
+    private <T> T decode(String name, byte[] raw) {
+        return CodecSupport.decode(redissonRouter.route(name).getConfig().getCodec(), raw);
+    }
+
+    private byte[] encode(String name, Object value) {
+        return CodecSupport.encode(redissonRouter.route(name).getConfig().getCodec(), value);
+    }
+
+    private <T> Map<String, T> fetchAll(Collection<String> names) {
+        Map<String, byte[]> raws;
+        if (bigValues != null) {
+            raws = bigValues.getAllRaw(names);
+        } else {
+            ShardedBatch batch = new ShardedBatch(redissonRouter);
+            Map<String, RFuture<byte[]>> futures = new LinkedHashMap<>();
+            boolean sliding = slidingEnabled();
+            for (String name : names) {
+                RBatch shard = batch.batchFor(name);
+                futures.put(name, shard.<byte[]>getBucket(name, ByteBufferCodec.INSTANCE).getAsync());
+                if (sliding) {
+                    ExpirationSupport.touchAsync(shard, name, slidingTime());
+                }
+            }
+            batch.execute();
+            raws = new LinkedHashMap<>();
+            for (Map.Entry<String, RFuture<byte[]>> entry : futures.entrySet()) {
+                if (entry.getValue().getNow() != null) {
+                    raws.put(entry.getKey(), entry.getValue().getNow());
+                }
+            }
+        }
+        Map<String, T> result = new LinkedHashMap<>();
+        for (Map.Entry<String, byte[]> entry : raws.entrySet()) {
+            operationInterceptor.onPayload("getValues", entry.getKey(), entry.getValue().length);
+            T value = decode(entry.getKey(), entry.getValue());
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    BigValueStore bigValues() {
+        return bigValues;
+    }
+
+    /**
+     * 写入时实际使用的过期时间,按配置做随机抖动
+     *
+     * @param time 缓存时间 单位毫秒 -1 永久缓存
+     * @return
+     */
+    Long expireTime(Long time) {
+        return ExpirationSupport.jitter(time, redissonProperties.getExpirationConfig());
+    }
+
+    /**
+     * 是否在读取时续期
+     * 开启大值分片时不续期,只续期清单会让分片先于清单过期
+     */
+    boolean slidingEnabled() {
+        return bigValues == null && ExpirationSupport.sliding(redissonProperties.getExpirationConfig(), redissonProperties.getDataValidTime());
+    }
+
+    long slidingTime() {
+        return ExpirationSupport.slidingTime(redissonProperties.getExpirationConfig(), redissonProperties.getDataValidTime());
+    }
+
+    boolean bufferWrite(String name, Object value, Long time) {
+        if (writeBehind == null) {
+            return false;
+        }
+        writeBehind.put(name, value, time);
+        return true;
+    }
+
+    <T> T readBuffered(String name) {
+        if (writeBehind == null) {
+            return null;
+        }
+        WriteBehindBuffer.Pending pending = writeBehind.get(name);
+        return pending == null ? null : (T) pending.value;
+    }
+
+    void discardBuffered(String name) {
+        if (writeBehind != null) {
+            writeBehind.remove(name);
+        }
+    }
+
+    NearCache nearCache() {
+        return nearCache;
+    }
+
+    void invalidate(String... names) {
+        if (nearCache != null) {
+            nearCache.invalidate(names);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(names);
+        }
+    }
 
 
 }
@@ -0,0 +1,190 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.cache.NearCache;
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.support.ExpirationSupport;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RFuture;
+
+import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步操作对象
+ */
+public class RedissonObjectAsync {
+
+    @Resource
+    private RedissonRouter redissonRouter;
+
+    @Resource
+    private OperationInterceptor operationInterceptor;
+
+    @Resource
+    private RedissonProperties redissonProperties;
+
+    @Resource
+    private RedissonObject redissonObject;
+
+    /**
+     * 获取对象值
+     *
+     * @param name
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> getValue(String name) {
+        return operationInterceptor.interceptAsync("getValue", name, () -> {
+            T buffered = redissonObject.readBuffered(name);
+            if (buffered != null) {
+                return CompletableFuture.completedFuture(buffered);
+            }
+            NearCache nearCache = redissonObject.nearCache();
+            if (nearCache == null) {
+                return fetch(name);
+            }
+            Object cached = nearCache.get(name);
+            if (cached != null) {
+                return CompletableFuture.completedFuture((T) cached);
+            }
+            long generation = nearCache.generation(name);
+            return this.<T>fetch(name).thenApply(value -> {
+                nearCache.put(name, value, generation);
+                return value;
+            });
+        });
+    }
+
+    /**
+     * 设置对象的值
+     *
+     * @param name  键
+     * @param value 值
+     * @return
+     */
+    public <T> CompletableFuture<Void> setValue(String name, T value) {
+        return setValue(name, value, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 设置对象的值
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     * @return
+     */
+    public <T> CompletableFuture<Void> setValue(String name, T value, Long time) {
+        return operationInterceptor.interceptAsync("setValue", name, () -> {
+            Long ttl = redissonObject.expireTime(time);
+            if (redissonObject.bufferWrite(name, value, ttl)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            BigValueStore bigValues = redissonObject.bigValues();
+            if (bigValues != null) {
+                return bigValues.setAsync(name, value, ttl).thenApply(v -> {
+                    redissonObject.invalidate(name);
+                    return v;
+                });
+            }
+            RBucket<Object> bucket = redissonRouter.route(name).getBucket(name);
+            RFuture<Void> future;
+            if (ttl == -1) {
+                future = bucket.setAsync(value);
+            } else {
+                future = bucket.setAsync(value, ttl, TimeUnit.MILLISECONDS);
+            }
+            return AsyncSupport.toFuture(future).thenApply(v -> {
+                redissonObject.invalidate(name);
+                return v;
+            });
+        });
+    }
+
+    /**
+     * 如果值已经存在则则不设置
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒
+     * @return true 设置成功,false 值存在,不设置
+     */
+    public <T> CompletableFuture<Boolean> trySetValue(String name, T value, Long time) {
+        return operationInterceptor.interceptAsync("trySetValue", name, () -> {
+            if (redissonObject.readBuffered(name) != null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            BigValueStore bigValues = redissonObject.bigValues();
+            Long ttl = redissonObject.expireTime(time);
+            CompletableFuture<Boolean> future;
+            if (bigValues != null) {
+                future = bigValues.trySetAsync(name, value, ttl);
+            } else {
+                RBucket<Object> bucket = redissonRouter.route(name).getBucket(name);
+                if (ttl == -1) {
+                    future = AsyncSupport.toFuture(bucket.trySetAsync(value));
+                } else {
+                    future = AsyncSupport.toFuture(bucket.trySetAsync(value, ttl, TimeUnit.MILLISECONDS));
+                }
+            }
+            return future.thenApply(b -> {
+                if (b) {
+                    redissonObject.invalidate(name);
+                }
+                return b;
+            });
+        });
+    }
+
+    /**
+     * 如果值已经存在则则不设置
+     *
+     * @param name  键
+     * @param value 值
+     * @return true 设置成功,false 值存在,不设置
+     */
+    public <T> CompletableFuture<Boolean> trySetValue(String name, T value) {
+        return trySetValue(name, value, redissonProperties.getDataValidTime());
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param name 键
+     * @return true 删除成功,false 不成功
+     */
+    public CompletableFuture<Boolean> delete(String name) {
+        return operationInterceptor.interceptAsync("delete", name, () -> {
+            redissonObject.discardBuffered(name);
+            BigValueStore bigValues = redissonObject.bigValues();
+            CompletableFuture<Boolean> future = bigValues != null
+                    ? bigValues.deleteAsync(name)
+                    : AsyncSupport.toFuture(redissonRouter.route(name).getBucket(name).deleteAsync());
+            return future.thenApply(b -> {
+                redissonObject.invalidate(name);
+                return b;
+            });
+        });
+    }
+
+    private <T> CompletableFuture<T> fetch(String name) {
+        BigValueStore bigValues = redissonObject.bigValues();
+        if (bigValues != null) {
+            return bigValues.getAsync(name);
+        }
+        if (redissonObject.slidingEnabled()) {
+            RBatch batch = redissonRouter.route(name).createBatch(BatchOptions.defaults());
+            RFuture<T> future = batch.<T>getBucket(name).getAsync();
+            ExpirationSupport.touchAsync(batch, name, redissonObject.slidingTime());
+            return AsyncSupport.toFuture(batch.executeAsync()).thenApply(result -> future.getNow());
+        }
+        RBucket<T> bucket = redissonRouter.route(name).getBucket(name);
+        return AsyncSupport.toFuture(bucket.getAsync());
+    }
+
+}
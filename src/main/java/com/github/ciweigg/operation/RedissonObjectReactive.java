@@ -0,0 +1,82 @@
+package com.github.ciweigg.operation;
+
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Resource;
+
+/**
+ * 响应式操作对象
+ */
+public class RedissonObjectReactive {
+
+    @Resource
+    private RedissonObjectAsync redissonObjectAsync;
+
+    /**
+     * 获取对象值
+     *
+     * @param name
+     * @param <T>
+     * @return 值不存在时为空
+     */
+    public <T> Mono<T> getValue(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonObjectAsync.<T>getValue(name)));
+    }
+
+    /**
+     * 设置对象的值
+     *
+     * @param name  键
+     * @param value 值
+     * @return
+     */
+    public <T> Mono<Void> setValue(String name, T value) {
+        return Mono.defer(() -> Mono.fromFuture(redissonObjectAsync.setValue(name, value)));
+    }
+
+    /**
+     * 设置对象的值
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     * @return
+     */
+    public <T> Mono<Void> setValue(String name, T value, Long time) {
+        return Mono.defer(() -> Mono.fromFuture(redissonObjectAsync.setValue(name, value, time)));
+    }
+
+    /**
+     * 如果值已经存在则则不设置
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒
+     * @return true 设置成功,false 值存在,不设置
+     */
+    public <T> Mono<Boolean> trySetValue(String name, T value, Long time) {
+        return Mono.defer(() -> Mono.fromFuture(redissonObjectAsync.trySetValue(name, value, time)));
+    }
+
+    /**
+     * 如果值已经存在则则不设置
+     *
+     * @param name  键
+     * @param value 值
+     * @return true 设置成功,false 值存在,不设置
+     */
+    public <T> Mono<Boolean> trySetValue(String name, T value) {
+        return Mono.defer(() -> Mono.fromFuture(redissonObjectAsync.trySetValue(name, value)));
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param name 键
+     * @return true 删除成功,false 不成功
+     */
+    public Mono<Boolean> delete(String name) {
+        return Mono.defer(() -> Mono.fromFuture(redissonObjectAsync.delete(name)));
+    }
+
+}
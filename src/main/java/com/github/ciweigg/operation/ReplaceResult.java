@@ -0,0 +1,54 @@
+package com.github.ciweigg.operation;
+
+/**
+ * 集合差异替换结果
+ */
+public class ReplaceResult {
+
+    private final long elements;
+
+    private final long changes;
+
+    private final boolean fullRead;
+
+    private final long elapsedNanos;
+
+    public ReplaceResult(long elements, long changes, boolean fullRead, long elapsedNanos) {
+        this.elements = elements;
+        this.changes = changes;
+        this.fullRead = fullRead;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * 替换后的元素个数
+     */
+    public long getElements() {
+        return elements;
+    }
+
+    /**
+     * 写入redis的元素个数,包括删除、修改和新增
+     */
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * 是否读取了redis中的全部数据,本地快照命中时为false
+     */
+    public boolean isFullRead() {
+        return fullRead;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplaceResult{elements=" + elements + ", changes=" + changes + ", fullRead=" + fullRead
+                + ", elapsedMillis=" + getElapsedMillis() + "}";
+    }
+
+}
@@ -0,0 +1,278 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.properties.RedissonWriteBehindConfig;
+import com.github.ciweigg.shard.RedissonRouter;
+import com.github.ciweigg.shard.ShardedBatch;
+import org.redisson.api.RBatch;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * setValue延迟合并写入缓冲
+ * 按key分段加锁,每个键只保留最后一次写入的值,按条数或时间间隔通过RBatch管道批量写入,
+ * 等待写入的键个数有上限,缓冲满时写入方阻塞等待
+ */
+class WriteBehindBuffer {
+
+    private static final int SEGMENTS = 16;
+
+    private final RedissonRouter redissonRouter;
+
+    private final RedissonWriteBehindConfig config;
+
+    private final Consumer<String[]> onFlushed;
+
+    private final Segment[] segments;
+
+    /**
+     * 剩余可缓冲的键个数,写入redis完成后才归还
+     */
+    private final Semaphore permits;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * @param redissonRouter
+     * @param config
+     * @param onFlushed      写入redis完成后的回调,参数为写入的键
+     */
+    WriteBehindBuffer(RedissonRouter redissonRouter, RedissonWriteBehindConfig config, Consumer<String[]> onFlushed) {
+        this.redissonRouter = redissonRouter;
+        this.config = config;
+        this.onFlushed = onFlushed;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        this.permits = new Semaphore(config.getMaxPendingKeys());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("redisson-write-behind-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, config.getFlushInterval(), config.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 放入缓冲,同一个键覆盖之前未写入的值
+     *
+     * @param name  键
+     * @param value 值
+     * @param time  缓存时间 单位毫秒 -1 永久缓存
+     */
+    void put(String name, Object value, Long time) {
+        Pending pending = new Pending(value, time);
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            if (segment.pending.containsKey(name)) {
+                segment.pending.put(name, pending);
+                return;
+            }
+        }
+        try {
+            if (!permits.tryAcquire(config.getMaxBlockTime(), TimeUnit.MILLISECONDS)) {
+                requestFlush();
+                throw new RuntimeException("write-behind buffer is full, pending keys: " + config.getMaxPendingKeys());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        synchronized (segment) {
+            if (segment.pending.put(name, pending) != null) {
+                //等待许可期间其它线程已放入同一个键
+                permits.release();
+            }
+        }
+        if (config.getMaxPendingKeys() - permits.availablePermits() >= config.getFlushSize()) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * 获取尚未写入redis的值
+     *
+     * @param name 键
+     * @return 没有缓冲返回null
+     */
+    Pending get(String name) {
+        Segment segment = segmentFor(name);
+        synchronized (segment) {
+            Pending pending = segment.pending.get(name);
+            return pending != null ? pending : segment.flushing.get(name);
+        }
+    }
+
+    /**
+     * 丢弃尚未写入的值,正在写入的等待写入完成,
+     * 绕过缓冲直接操作redis之前调用,避免缓冲中的旧值在之后覆盖
+     *
+     * @param name 键
+     */
+    void remove(String name) {
+        Segment segment = segmentFor(name);
+        CompletableFuture<Void> flushed = null;
+        synchronized (segment) {
+            if (segment.pending.remove(name) != null) {
+                permits.release();
+            }
+            if (segment.flushing.containsKey(name)) {
+                flushed = segment.flushed;
+            }
+        }
+        if (flushed != null) {
+            try {
+                flushed.join();
+            } catch (RuntimeException e) {
+                //写入失败的值会放回缓冲,这里再丢弃一次
+                remove(name);
+            }
+        }
+    }
+
+    /**
+     * 把缓冲中的值全部写入redis
+     */
+    synchronized void flush() {
+        Map<String, Pending> drained = new LinkedHashMap<>();
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                if (segment.pending.isEmpty()) {
+                    continue;
+                }
+                segment.flushing = segment.pending;
+                segment.pending = new LinkedHashMap<>();
+                segment.flushed = flushed;
+                drained.putAll(segment.flushing);
+            }
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+        try {
+            write(drained);
+        } catch (RuntimeException e) {
+            requeue();
+            flushed.completeExceptionally(e);
+            throw e;
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.flushing = new LinkedHashMap<>();
+            }
+        }
+        permits.release(drained.size());
+        flushed.complete(null);
+        onFlushed.accept(drained.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * 写入剩余的值并停止后台线程
+     */
+    void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(config.getFlushInterval() * 10, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void write(Map<String, Pending> drained) {
+        List<Map.Entry<String, Pending>> entries = new ArrayList<>(drained.entrySet());
+        for (int from = 0; from < entries.size(); from += config.getBatchSize()) {
+            int to = Math.min(from + config.getBatchSize(), entries.size());
+            ShardedBatch batch = new ShardedBatch(redissonRouter);
+            for (Map.Entry<String, Pending> entry : entries.subList(from, to)) {
+                Pending pending = entry.getValue();
+                RBatch shard = batch.batchFor(entry.getKey());
+                if (pending.time == -1) {
+                    shard.getBucket(entry.getKey()).setAsync(pending.value);
+                } else {
+                    shard.getBucket(entry.getKey()).setAsync(pending.value, pending.time, TimeUnit.MILLISECONDS);
+                }
+            }
+            batch.execute();
+        }
+    }
+
+    /**
+     * 写入失败时把没有被新值覆盖的键放回缓冲,下次继续写入
+     */
+    private void requeue() {
+        int released = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Map.Entry<String, Pending> entry : segment.flushing.entrySet()) {
+                    if (segment.pending.containsKey(entry.getKey())) {
+                        released++;
+                    } else {
+                        segment.pending.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                segment.flushing = new LinkedHashMap<>();
+            }
+        }
+        permits.release(released);
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            //已放回缓冲,下次定时写入重试
+        }
+    }
+
+    private Segment segmentFor(String name) {
+        int h = name.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    static class Pending {
+
+        final Object value;
+
+        final Long time;
+
+        Pending(Object value, Long time) {
+            this.value = value;
+            this.time = time;
+        }
+    }
+
+    private static class Segment {
+
+        private Map<String, Pending> pending = new LinkedHashMap<>();
+
+        /**
+         * 正在写入redis的值,写入完成前读取仍然返回这些值
+         */
+        private Map<String, Pending> flushing = new LinkedHashMap<>();
+
+        private CompletableFuture<Void> flushed;
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 在途命令数自动调节配置
+ * 调节的是操作bean同时在途的命令数上限,不修改redisson连接池,连接池大小应配置为不小于maxPoolSize
+ */
+@Data
+public class RedissonAutotuneConfig {
+
+    private Boolean enabled = false;
+
+    //最小在途命令数
+    private Integer minPoolSize = 8;
+
+    //最大在途命令数
+    private Integer maxPoolSize = 64;
+
+    //调节间隔 单位毫秒
+    private Long interval = 1000L;
+
+    //平均等待时间超过该值时扩大 单位毫秒
+    private Long waitThreshold = 1L;
+
+    //平均耗时超过基线的倍数时认为redis已饱和,按decreaseFactor缩小
+    private Double latencyTolerance = 2.0;
+
+    //基线耗时的平滑系数,每个周期新平均耗时所占的比例
+    private Double baselineSmoothing = 0.2;
+
+    //有调用方等待额度时扩大的倍数
+    private Double increaseFactor = 2.0;
+
+    //峰值在途数接近上限时扩大、利用率偏低时缩小的步长
+    private Integer step = 2;
+
+    //饱和时缩小的比例
+    private Double decreaseFactor = 0.75;
+
+    //有命令的周期中峰值在途命令数低于上限的该比例时逐步缩小,没有命令的周期不缩小
+    private Double lowUtilization = 0.5;
+
+    //等待可用额度的最长时间 单位毫秒,超时同步操作抛出异常,异步操作的future以异常结束
+    private Long acquireTimeout = 3000L;
+
+}
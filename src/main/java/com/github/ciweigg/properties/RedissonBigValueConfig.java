@@ -0,0 +1,26 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 大值分片存储配置
+ */
+@Data
+public class RedissonBigValueConfig {
+
+    //开启后RedissonObject编码后超过阈值的值分片存储
+    private Boolean enabled = false;
+
+    //分片阈值 单位字节
+    private Integer threshold = 1024 * 1024;
+
+    //每个分片的大小 单位字节
+    private Integer chunkSize = 256 * 1024;
+
+    //分片键前缀,分片键不带hash tag,在集群中分散到不同的slot
+    private String chunkKeyPrefix = "redisson:big-value:";
+
+    //覆盖或删除后旧版本分片保留的时间 单位毫秒,期间已读到旧清单的读取仍能取回完整的值
+    private Long retiredChunkTtl = 5000L;
+
+}
@@ -0,0 +1,20 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 二进制流传输配置
+ */
+@Data
+public class RedissonBinaryConfig {
+
+    //每次读写的分块大小 单位字节
+    private Integer chunkSize = 1024 * 1024;
+
+    //同时在途的分块数量
+    private Integer maxInFlightChunks = 8;
+
+    //文件超过该大小时使用内存映射读取 单位字节
+    private Long mappedThreshold = 4 * 1024 * 1024L;
+
+}
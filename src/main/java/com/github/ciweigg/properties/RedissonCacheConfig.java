@@ -0,0 +1,25 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * spring cache单个缓存的配置,对应redisson.caches.缓存名称
+ */
+@Data
+public class RedissonCacheConfig {
+
+    //缓存时间 单位毫秒 0不过期
+    private Long ttl = 0L;
+
+    //最大空闲时间 单位毫秒 0不限制
+    private Long maxIdleTime = 0L;
+
+    //最大条数 0不限制,本地缓存模式下为本地最大条数
+    private Integer maxSize = 0;
+
+    //是否使用RLocalCachedMap在本地缓存读取结果,此模式下ttl,maxIdleTime只作用于本地,redis中的数据不过期
+    private Boolean localCached = false;
+
+    private Boolean allowNullValues = true;
+
+}
@@ -0,0 +1,29 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 集合批量操作配置
+ */
+@Data
+public class RedissonCollectionConfig {
+
+    //批量导入时每条命令包含的元素个数
+    private Integer bulkChunkSize = 1000;
+
+    //批量导入时每个RBatch包含的命令个数
+    private Integer bulkCommandsPerBatch = 8;
+
+    //批量导入时同时在途的RBatch个数,List为保证顺序固定为1
+    private Integer bulkMaxInFlightBatches = 2;
+
+    //批量导入临时键的过期时间,导入中断时由redis自动清理 单位毫秒
+    private Long bulkTempKeyTtl = 1000 * 60 * 60L;
+
+    //流式读取时每次HSCAN/SSCAN/LRANGE的条数
+    private Integer pageSize = 500;
+
+    //replace*保留在本地的集合快照个数,命中快照时不读取redis直接计算差异,0不保留
+    private Integer replaceSnapshots = 16;
+
+}
@@ -0,0 +1,20 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 压缩编解码配置,redisson.codec为com.github.ciweigg.codec.CompressionCodec时生效
+ */
+@Data
+public class RedissonCompressionConfig {
+
+    //实际序列化使用的编解码
+    private String innerCodec = "org.redisson.codec.JsonJacksonCodec";
+
+    //压缩算法 lz4,snappy
+    private String algorithm = "lz4";
+
+    //序列化后超过该大小才压缩 单位字节
+    private Integer threshold = 1024;
+
+}
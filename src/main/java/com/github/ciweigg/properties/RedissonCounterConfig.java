@@ -0,0 +1,17 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * RedissonCounter本地累加计数配置
+ */
+@Data
+public class RedissonCounterConfig {
+
+    //把本地累加的增量写入redis的间隔 单位毫秒
+    private Long flushInterval = 1000L;
+
+    //每个RBatch管道的最大命令数
+    private Integer batchSize = 500;
+
+}
@@ -0,0 +1,21 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 过期时间配置
+ * 随机抖动避免同一批写入的键在同一时刻集中过期;滑动过期让有访问的键一直不过期
+ */
+@Data
+public class RedissonExpirationConfig {
+
+    //过期时间随机缩短的最大比例,0不抖动,0.1表示实际过期时间在[time*0.9, time]之间均匀分布
+    private Double jitterRatio = 0.0;
+
+    //读取时重置过期时间,只对已设置过期时间的键生效,永久缓存的键不受影响
+    private Boolean slidingExpiration = false;
+
+    //滑动过期时读取后重置的过期时间 单位毫秒,为空时使用dataValidTime,不是正数时不续期
+    private Long slidingTime;
+
+}
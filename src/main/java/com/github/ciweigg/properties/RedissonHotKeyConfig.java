@@ -0,0 +1,31 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 热点键统计配置
+ */
+@Data
+public class RedissonHotKeyConfig {
+
+    private Boolean enabled = false;
+
+    //采样间隔,平均每N次访问统计一次
+    private Integer sampleRate = 16;
+
+    //count-min sketch每行的计数器个数,取2的幂
+    private Integer sketchWidth = 4096;
+
+    //count-min sketch的行数
+    private Integer sketchDepth = 4;
+
+    //报告的热点键个数
+    private Integer topK = 20;
+
+    //统计周期 单位毫秒,每个周期结束时生成报告并把计数减半
+    private Long reportInterval = 60000L;
+
+    //是否在每个周期结束时输出日志
+    private Boolean logEnabled = true;
+
+}
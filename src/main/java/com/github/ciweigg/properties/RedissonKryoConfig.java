@@ -0,0 +1,26 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * kryo编解码配置,redisson.codec为com.github.ciweigg.codec.PooledKryoCodec时生效
+ */
+@Data
+public class RedissonKryoConfig {
+
+    //需要注册的类全名,顺序决定类id,所有节点必须一致
+    private List<String> registeredClasses = new ArrayList<>();
+
+    //是否只允许序列化注册过的类
+    private Boolean registrationRequired = false;
+
+    //是否支持循环引用和共享引用
+    private Boolean references = true;
+
+    //每个池化实例的读写缓冲大小 单位字节
+    private Integer bufferSize = 4096;
+
+}
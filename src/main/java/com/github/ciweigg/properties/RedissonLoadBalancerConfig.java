@@ -0,0 +1,33 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 按延迟选择从节点的负载均衡配置
+ * multipleServerConfig.loadBalancer为com.github.ciweigg.balancer.LatencyAwareLoadBalancer时生效
+ */
+@Data
+public class RedissonLoadBalancerConfig {
+
+    //探测间隔 单位毫秒,每个节点每次发送一个PING
+    private Long probeInterval = 1000L;
+
+    //PING超时时间 单位毫秒,超时按超时时间计入并立即摘除
+    private Long probeTimeout = 1000L;
+
+    //延迟滑动平均中新样本的权重
+    private Double ewmaAlpha = 0.3;
+
+    //平均延迟超过所有节点中位数的倍数时摘除
+    private Double ejectFactor = 3.0;
+
+    //平均延迟低于该值时不摘除,避免亚毫秒级的抖动 单位毫秒
+    private Long ejectMinLatency = 5L;
+
+    //摘除时间 单位毫秒,到期后重新参与选择
+    private Long ejectTime = 30000L;
+
+    //最多摘除的节点比例 单位百分比
+    private Integer maxEjectPercent = 50;
+
+}
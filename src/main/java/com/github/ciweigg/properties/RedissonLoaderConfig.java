@@ -0,0 +1,26 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * getOrLoad回源加载配置
+ */
+@Data
+public class RedissonLoaderConfig {
+
+    //等待其它节点加载完成的最长时间 单位毫秒,超时后自行加载
+    private Long lockWaitTime = 3000L;
+
+    //加载锁的租期 单位毫秒,应大于加载耗时
+    private Long lockLeaseTime = 10000L;
+
+    //提前刷新系数,越大越早刷新,0关闭提前刷新
+    private Double earlyRefreshBeta = 1.0;
+
+    //后台提前刷新的线程数
+    private Integer refreshThreads = 2;
+
+    //后台提前刷新的最大排队数,超过后丢弃本次刷新
+    private Integer refreshQueueSize = 1000;
+
+}
@@ -0,0 +1,17 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * RedissonLocks本地合并分布式锁配置
+ */
+@Data
+public class RedissonLockConfig {
+
+    //本地锁表的分段数,取2的幂
+    private Integer stripes = 64;
+
+    //redis锁在本节点线程之间连续移交的最大次数,超过后释放一次让其它节点有机会获取
+    private Integer maxLocalHandoffs = 16;
+
+}
@@ -0,0 +1,19 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 操作统计配置,存在MeterRegistry时生效
+ */
+@Data
+public class RedissonMetricsConfig {
+
+    private Boolean enabled = true;
+
+    //键的分隔符,按分隔符截取前缀作为统计标签
+    private String keyPrefixDelimiter = ":";
+
+    //截取前缀的段数
+    private Integer keyPrefixSegments = 1;
+
+}
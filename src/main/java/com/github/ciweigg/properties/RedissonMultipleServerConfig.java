@@ -13,6 +13,7 @@ import java.util.List;
 @Data
 public class RedissonMultipleServerConfig {
 
+    //从节点负载均衡,按延迟选择使用com.github.ciweigg.balancer.LatencyAwareLoadBalancer,参数见loadBalancerConfig
     private String loadBalancer = "org.redisson.connection.balancer.RoundRobinLoadBalancer";
     private Integer slaveConnectionMinimumIdleSize = 32;
     private Integer slaveConnectionPoolSize = 64;
@@ -37,4 +38,7 @@ public class RedissonMultipleServerConfig {
     //哨兵模式
     private String masterName;
 
+    //分片模式每个节点的虚拟节点数
+    private Integer virtualNodes = 160;
+
 }
@@ -0,0 +1,22 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 本地近端缓存配置
+ */
+@Data
+public class RedissonNearCacheConfig {
+
+    private Boolean enabled = false;
+
+    //本地最大缓存条数
+    private Integer maxSize = 10000;
+
+    //本地缓存时间 单位毫秒
+    private Long timeToLive = 60000L;
+
+    //各节点之间失效通知的topic
+    private String invalidationTopic = "redisson:near-cache:invalidation";
+
+}
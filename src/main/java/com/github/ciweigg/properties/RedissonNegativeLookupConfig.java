@@ -0,0 +1,39 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 防缓存穿透配置
+ * 开启后getOrLoad只加载布隆过滤器中可能存在的键,数据新增时需要通过RedissonObject.registerKeys登记,
+ * 已有数据在启动时批量登记
+ */
+@Data
+public class RedissonNegativeLookupConfig {
+
+    private Boolean enabled = false;
+
+    //布隆过滤器预计登记的键数量
+    private Long expectedInsertions = 1000000L;
+
+    //布隆过滤器的误判率
+    private Double falseProbability = 0.01;
+
+    //布隆过滤器位数组的键,修改expectedInsertions或falseProbability后需要换一个名称
+    private String filterName = "redisson:negative-lookup:filter";
+
+    //各节点之间同步新登记键的topic
+    private String topic = "redisson:negative-lookup:added";
+
+    //批量登记时每个管道包含的键数量
+    private Integer batchSize = 1000;
+
+    //一次登记的键超过该数量时不逐个通知,只通知其它节点从redis全量同步一次
+    private Integer bulkThreshold = 1000;
+
+    //从redis全量同步本地位数组的间隔 单位毫秒
+    private Long refreshInterval = 60000L;
+
+    //加载结果为空时空值标记的缓存时间 单位毫秒,0不缓存空值
+    private Long nullMarkerTtl = 30000L;
+
+}
@@ -0,0 +1,35 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 堆外本地缓存配置
+ * 保存编码后的字节,读取命中时才解码,用于近端缓存放不下的大值
+ */
+@Data
+public class RedissonOffHeapCacheConfig {
+
+    private Boolean enabled = false;
+
+    //堆外内存总大小 单位字节
+    private Long capacity = 256L * 1024 * 1024;
+
+    //分配单位 单位字节,一个值占用若干个块
+    private Integer blockSize = 16 * 1024;
+
+    //编码后小于该大小的值不进入堆外缓存,开启近端缓存时仍由近端缓存保存 单位字节
+    private Integer minValueSize = 16 * 1024;
+
+    //编码后超过该大小的值不缓存 单位字节
+    private Integer maxValueSize = 8 * 1024 * 1024;
+
+    //本地缓存时间 单位毫秒
+    private Long timeToLive = 60000L;
+
+    //内存映射文件路径,为空时使用direct内存
+    private String mappedFile;
+
+    //各节点之间失效通知的topic
+    private String invalidationTopic = "redisson:off-heap-cache:invalidation";
+
+}
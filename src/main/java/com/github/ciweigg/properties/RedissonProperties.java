@@ -7,13 +7,18 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "redisson")
 @Data
 public class RedissonProperties {
 
+    //single,cluster,sentinel,masterslave,replicated,sharded(客户端一致性哈希,地址见multipleServerConfig.nodeAddresses)
     private String mode = "single";
     private String codec="org.redisson.codec.JsonJacksonCodec";
+    //RedisTemplate的值序列化 fastjson,codec(与redisson.codec相同,两边写入的值可以互相读取)
+    private String valueSerializer = "fastjson";
     private Integer threads;
     private Integer nettyThreads;
     private TransportMode transportMode=TransportMode.NIO;
@@ -54,4 +59,62 @@ public class RedissonProperties {
     @NestedConfigurationProperty
     private RedissonMultipleServerConfig multipleServerConfig;
 
+    @NestedConfigurationProperty
+    private RedissonNearCacheConfig nearCacheConfig = new RedissonNearCacheConfig();
+
+    @NestedConfigurationProperty
+    private RedissonBinaryConfig binaryConfig = new RedissonBinaryConfig();
+
+    @NestedConfigurationProperty
+    private RedissonCompressionConfig compressionConfig = new RedissonCompressionConfig();
+
+    @NestedConfigurationProperty
+    private RedissonMetricsConfig metricsConfig = new RedissonMetricsConfig();
+
+    @NestedConfigurationProperty
+    private RedissonCollectionConfig collectionConfig = new RedissonCollectionConfig();
+
+    @NestedConfigurationProperty
+    private RedissonLoaderConfig loaderConfig = new RedissonLoaderConfig();
+
+    @NestedConfigurationProperty
+    private RedissonWriteBehindConfig writeBehindConfig = new RedissonWriteBehindConfig();
+
+    @NestedConfigurationProperty
+    private RedissonHotKeyConfig hotKeyConfig = new RedissonHotKeyConfig();
+
+    @NestedConfigurationProperty
+    private RedissonBigValueConfig bigValueConfig = new RedissonBigValueConfig();
+
+    @NestedConfigurationProperty
+    private RedissonKryoConfig kryoConfig = new RedissonKryoConfig();
+
+    @NestedConfigurationProperty
+    private RedissonStartupConfig startupConfig = new RedissonStartupConfig();
+
+    @NestedConfigurationProperty
+    private RedissonAutotuneConfig autotuneConfig = new RedissonAutotuneConfig();
+
+    @NestedConfigurationProperty
+    private RedissonNegativeLookupConfig negativeLookupConfig = new RedissonNegativeLookupConfig();
+
+    @NestedConfigurationProperty
+    private RedissonLoadBalancerConfig loadBalancerConfig = new RedissonLoadBalancerConfig();
+
+    @NestedConfigurationProperty
+    private RedissonLockConfig lockConfig = new RedissonLockConfig();
+
+    @NestedConfigurationProperty
+    private RedissonOffHeapCacheConfig offHeapCacheConfig = new RedissonOffHeapCacheConfig();
+
+    @NestedConfigurationProperty
+    private RedissonCounterConfig counterConfig = new RedissonCounterConfig();
+
+    @NestedConfigurationProperty
+    private RedissonExpirationConfig expirationConfig = new RedissonExpirationConfig();
+
+    //spring cache各缓存的配置,未配置的缓存使用dataValidTime作为缓存时间,dataValidTime为-1时不过期
+    //开启@EnableCaching时注册redisson的CacheManager,redisson.cache.enabled=false时不注册
+    private Map<String, RedissonCacheConfig> caches = new LinkedHashMap<>();
+
 }
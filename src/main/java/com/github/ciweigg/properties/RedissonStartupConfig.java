@@ -0,0 +1,23 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * 客户端启动配置
+ */
+@Data
+public class RedissonStartupConfig {
+
+    //开启后在后台线程创建客户端并初始化连接池,不阻塞spring容器启动
+    private Boolean lazy = false;
+
+    //客户端就绪前调用方最长等待时间 单位毫秒
+    private Long timeout = 30000L;
+
+    //后台创建失败后第一次重试的间隔 单位毫秒,之后每次翻倍
+    private Long retryInterval = 1000L;
+
+    //重试间隔的上限 单位毫秒
+    private Long maxRetryInterval = 30000L;
+
+}
@@ -0,0 +1,29 @@
+package com.github.ciweigg.properties;
+
+import lombok.Data;
+
+/**
+ * setValue延迟合并写入配置
+ */
+@Data
+public class RedissonWriteBehindConfig {
+
+    //开启后setValue只写入本地缓冲,由后台线程合并后批量写入redis
+    private Boolean enabled = false;
+
+    //缓冲中最多等待写入的键个数,超过后setValue阻塞等待
+    private Integer maxPendingKeys = 10000;
+
+    //缓冲中的键个数达到该值时立即写入
+    private Integer flushSize = 500;
+
+    //定时写入间隔 单位毫秒
+    private Long flushInterval = 100L;
+
+    //每个RBatch包含的命令个数
+    private Integer batchSize = 500;
+
+    //缓冲已满时setValue最长等待时间 单位毫秒,超时抛出异常
+    private Long maxBlockTime = 1000L;
+
+}
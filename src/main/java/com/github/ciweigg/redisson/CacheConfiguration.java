@@ -1,35 +1,93 @@
 package com.github.ciweigg.redisson;
 
 import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.github.ciweigg.balancer.LatencyAwareLoadBalancer;
+import com.github.ciweigg.cache.NegativeLookupGuard;
+import com.github.ciweigg.cache.NegativeLookupGuardMetrics;
+import com.github.ciweigg.cache.OffHeapCache;
+import com.github.ciweigg.cache.RedissonPolicyCacheManager;
+import com.github.ciweigg.codec.CodecRedisSerializer;
+import com.github.ciweigg.codec.CompressionCodec;
+import com.github.ciweigg.codec.PooledKryoCodec;
+import com.github.ciweigg.interceptor.CompositeOperationInterceptor;
+import com.github.ciweigg.interceptor.HotKeyEndpoint;
+import com.github.ciweigg.interceptor.HotKeyTracker;
+import com.github.ciweigg.interceptor.KeyPrefixTagExtractor;
+import com.github.ciweigg.interceptor.KeyTagExtractor;
+import com.github.ciweigg.interceptor.MicrometerOperationInterceptor;
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.interceptor.PoolAutotuner;
+import com.github.ciweigg.interceptor.PoolAutotunerMetrics;
+import com.github.ciweigg.operation.RedissonBinaryAsync;
+import com.github.ciweigg.operation.RedissonBinaryReactive;
+import com.github.ciweigg.operation.RedissonCollectionAsync;
+import com.github.ciweigg.operation.RedissonCollectionReactive;
+import com.github.ciweigg.operation.RedissonObjectAsync;
+import com.github.ciweigg.operation.RedissonObjectReactive;
+import com.github.ciweigg.properties.RedissonCompressionConfig;
+import com.github.ciweigg.properties.RedissonKryoConfig;
+import com.github.ciweigg.properties.RedissonLoadBalancerConfig;
+import com.github.ciweigg.properties.RedissonMetricsConfig;
 import com.github.ciweigg.properties.RedissonMultipleServerConfig;
 import com.github.ciweigg.properties.RedissonProperties;
 import com.github.ciweigg.properties.RedissonSingleServerConfig;
+import com.github.ciweigg.properties.RedissonStartupConfig;
+import com.github.ciweigg.shard.ConsistentHashRouter;
+import com.github.ciweigg.shard.RedissonRouter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.Codec;
 import org.redisson.config.*;
 import org.redisson.connection.balancer.LoadBalancer;
 import org.redisson.spring.data.connection.RedissonConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheAspectSupport;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Configuration
 @EnableConfigurationProperties(RedissonProperties.class)
+@AutoConfigureBefore(CacheAutoConfiguration.class)
 public class CacheConfiguration {
 
+	private static final boolean MICROMETER_PRESENT =
+			ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry", CacheConfiguration.class.getClassLoader());
+
 	@Autowired
 	RedissonProperties redissonProperties;
 
+	/**
+	 * 创建的延迟感知负载均衡器,各自有探测线程和探测连接
+	 */
+	private final List<LatencyAwareLoadBalancer> loadBalancers = new CopyOnWriteArrayList<>();
+
 	@Configuration
 	@ConditionalOnClass({Redisson.class})
 	@ConditionalOnExpression("'${redisson.mode}'=='single' or '${redisson.mode}'=='cluster' or '${redisson.mode}'=='sentinel' or '${redisson.mode}'=='masterslave' or '${redisson.mode}'=='replicated'")
@@ -69,7 +127,7 @@ public class CacheConfiguration {
 			singleServerConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
 			singleServerConfig.setTcpNoDelay(redissonProperties.getTcpNoDelay());
 			singleServerConfig.setTimeout(redissonProperties.getTimeout());
-			return Redisson.create(config);
+			return createClient(config);
 		}
 
 		/**
@@ -95,11 +153,7 @@ public class CacheConfiguration {
 			clusterServersConfig.setSubscriptionConnectionMinimumIdleSize(multipleServerConfig.getSubscriptionConnectionMinimumIdleSize());
 			clusterServersConfig.setSubscriptionConnectionPoolSize(multipleServerConfig.getSubscriptionConnectionPoolSize());
 			clusterServersConfig.setDnsMonitoringInterval(multipleServerConfig.getDnsMonitoringInterval());
-			try {
-				clusterServersConfig.setLoadBalancer((LoadBalancer) Class.forName(multipleServerConfig.getLoadBalancer()).newInstance());
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
+			clusterServersConfig.setLoadBalancer(createLoadBalancer(multipleServerConfig));
 			for (String nodeAddress : multipleServerConfig.getNodeAddresses()) {
 				clusterServersConfig.addNodeAddress(prefixAddress(nodeAddress));
 			}
@@ -121,7 +175,7 @@ public class CacheConfiguration {
 			clusterServersConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
 			clusterServersConfig.setTcpNoDelay(redissonProperties.getTcpNoDelay());
 			clusterServersConfig.setTimeout(redissonProperties.getTimeout());
-			return Redisson.create(config);
+			return createClient(config);
 		}
 
 		/**
@@ -148,11 +202,7 @@ public class CacheConfiguration {
 			sentinelServersConfig.setSubscriptionConnectionMinimumIdleSize(multipleServerConfig.getSubscriptionConnectionMinimumIdleSize());
 			sentinelServersConfig.setSubscriptionConnectionPoolSize(multipleServerConfig.getSubscriptionConnectionPoolSize());
 			sentinelServersConfig.setDnsMonitoringInterval(multipleServerConfig.getDnsMonitoringInterval());
-			try {
-				sentinelServersConfig.setLoadBalancer((LoadBalancer) Class.forName(multipleServerConfig.getLoadBalancer()).newInstance());
-			} catch (Exception e) {
-				throw new RuntimeException(e);
-			}
+			sentinelServersConfig.setLoadBalancer(createLoadBalancer(multipleServerConfig));
 			for (String nodeAddress : multipleServerConfig.getNodeAddresses()) {
 				sentinelServersConfig.addSentinelAddress(prefixAddress(nodeAddress));
 			}
@@ -174,7 +224,7 @@ public class CacheConfiguration {
 			sentinelServersConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
 			sentinelServersConfig.setTcpNoDelay(redissonProperties.getTcpNoDelay());
 			sentinelServersConfig.setTimeout(redissonProperties.getTimeout());
-			return Redisson.create(config);
+			return createClient(config);
 		}
 	}
 
@@ -200,11 +250,7 @@ public class CacheConfiguration {
 		masterSlaveServersConfig.setSubscriptionConnectionMinimumIdleSize(multipleServerConfig.getSubscriptionConnectionMinimumIdleSize());
 		masterSlaveServersConfig.setSubscriptionConnectionPoolSize(multipleServerConfig.getSubscriptionConnectionPoolSize());
 		masterSlaveServersConfig.setDnsMonitoringInterval(multipleServerConfig.getDnsMonitoringInterval());
-		try {
-			masterSlaveServersConfig.setLoadBalancer((LoadBalancer) Class.forName(multipleServerConfig.getLoadBalancer()).newInstance());
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		masterSlaveServersConfig.setLoadBalancer(createLoadBalancer(multipleServerConfig));
 		int index=0;
 		for (String nodeAddress : multipleServerConfig.getNodeAddresses()) {
 			if(index++==0){
@@ -231,7 +277,7 @@ public class CacheConfiguration {
 		masterSlaveServersConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
 		masterSlaveServersConfig.setTcpNoDelay(redissonProperties.getTcpNoDelay());
 		masterSlaveServersConfig.setTimeout(redissonProperties.getTimeout());
-		return Redisson.create(config);
+		return createClient(config);
 	}
 
 	/**
@@ -257,11 +303,7 @@ public class CacheConfiguration {
 		replicatedServersConfig.setSubscriptionConnectionMinimumIdleSize(multipleServerConfig.getSubscriptionConnectionMinimumIdleSize());
 		replicatedServersConfig.setSubscriptionConnectionPoolSize(multipleServerConfig.getSubscriptionConnectionPoolSize());
 		replicatedServersConfig.setDnsMonitoringInterval(multipleServerConfig.getDnsMonitoringInterval());
-		try {
-			replicatedServersConfig.setLoadBalancer((LoadBalancer) Class.forName(multipleServerConfig.getLoadBalancer()).newInstance());
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		replicatedServersConfig.setLoadBalancer(createLoadBalancer(multipleServerConfig));
 		for (String nodeAddress : multipleServerConfig.getNodeAddresses()) {
 			replicatedServersConfig.addNodeAddress(prefixAddress(nodeAddress));
 		}
@@ -283,16 +325,86 @@ public class CacheConfiguration {
 		replicatedServersConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
 		replicatedServersConfig.setTcpNoDelay(redissonProperties.getTcpNoDelay());
 		replicatedServersConfig.setTimeout(redissonProperties.getTimeout());
+		return createClient(config);
+	}
+
+	/**
+	 * 分片模式,nodeAddresses中每个地址是一个独立的redis,客户端按一致性哈希选择节点
+	 * @return
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "redisson.mode", havingValue = "sharded")
+	ConsistentHashRouter redissonRouter() {
+		RedissonMultipleServerConfig multipleServerConfig = redissonProperties.getMultipleServerConfig();
+		Map<String, RedissonClient> shards = new LinkedHashMap<>();
+		for (String nodeAddress : multipleServerConfig.getNodeAddresses()) {
+			Config config = initConfigs();
+			SingleServerConfig singleServerConfig = config.useSingleServer();
+			singleServerConfig.setAddress(prefixAddress(nodeAddress));
+			singleServerConfig.setConnectionMinimumIdleSize(multipleServerConfig.getMasterConnectionMinimumIdleSize());
+			singleServerConfig.setConnectionPoolSize(multipleServerConfig.getMasterConnectionPoolSize());
+			singleServerConfig.setDatabase(multipleServerConfig.getDatabase());
+			singleServerConfig.setDnsMonitoringInterval(multipleServerConfig.getDnsMonitoringInterval());
+			singleServerConfig.setSubscriptionConnectionMinimumIdleSize(multipleServerConfig.getSubscriptionConnectionMinimumIdleSize());
+			singleServerConfig.setSubscriptionConnectionPoolSize(multipleServerConfig.getSubscriptionConnectionPoolSize());
+			singleServerConfig.setPingTimeout(redissonProperties.getPingTimeout());
+			singleServerConfig.setClientName(redissonProperties.getClientName());
+			singleServerConfig.setConnectTimeout(redissonProperties.getConnectTimeout());
+			singleServerConfig.setIdleConnectionTimeout(redissonProperties.getIdleConnectionTimeout());
+			singleServerConfig.setKeepAlive(redissonProperties.getKeepAlive());
+			singleServerConfig.setPassword(redissonProperties.getPassword());
+			singleServerConfig.setPingConnectionInterval(redissonProperties.getPingConnectionInterval());
+			singleServerConfig.setRetryAttempts(redissonProperties.getRetryAttempts());
+			singleServerConfig.setRetryInterval(redissonProperties.getRetryInterval());
+			singleServerConfig.setSslEnableEndpointIdentification(redissonProperties.getSslEnableEndpointIdentification());
+			singleServerConfig.setSslKeystore(redissonProperties.getSslKeystore());
+			singleServerConfig.setSslKeystorePassword(redissonProperties.getSslKeystorePassword());
+			singleServerConfig.setSslProvider(redissonProperties.getSslProvider());
+			singleServerConfig.setSslTruststore(redissonProperties.getSslTruststore());
+			singleServerConfig.setSslTruststorePassword(redissonProperties.getSslTruststorePassword());
+			singleServerConfig.setSubscriptionsPerConnection(redissonProperties.getSubscriptionsPerConnection());
+			singleServerConfig.setTcpNoDelay(redissonProperties.getTcpNoDelay());
+			singleServerConfig.setTimeout(redissonProperties.getTimeout());
+			shards.put(nodeAddress, createClient(config));
+		}
+		return new ConsistentHashRouter(shards, multipleServerConfig.getVirtualNodes());
+	}
+
+	/**
+	 * 分片模式的主客户端(第一个节点),用于topic、锁和RedisTemplate,由路由统一关闭
+	 * @return
+	 */
+	@Bean(destroyMethod = "")
+	@ConditionalOnProperty(name = "redisson.mode", havingValue = "sharded")
+	RedissonClient redissonSharded(RedissonRouter redissonRouter) {
+		return redissonRouter.clients().get(0);
+	}
+
+	/**
+	 * 非分片模式只有一个客户端
+	 * @return
+	 */
+	@Bean
+	@ConditionalOnMissingBean(RedissonRouter.class)
+	public RedissonRouter singleRedissonRouter(RedissonClient redissonClient) {
+		return RedissonRouter.single(redissonClient);
+	}
+
+	/**
+	 * 创建客户端,redisson.startupConfig.lazy开启时在后台创建
+	 */
+	private RedissonClient createClient(Config config) {
+		RedissonStartupConfig startupConfig = redissonProperties.getStartupConfig();
+		if (startupConfig.getLazy()) {
+			return LazyRedissonClient.create(config, startupConfig.getTimeout(),
+					startupConfig.getRetryInterval(), startupConfig.getMaxRetryInterval());
+		}
 		return Redisson.create(config);
 	}
 
 	public Config initConfigs(){
 		Config config=new Config();
-		try {
-			config.setCodec((Codec) Class.forName(redissonProperties.getCodec()).newInstance());
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		config.setCodec(createCodec());
 		config.setTransportMode(redissonProperties.getTransportMode());
 		if(redissonProperties.getThreads()!=null){
 			config.setThreads(redissonProperties.getThreads());
@@ -310,6 +422,67 @@ public class CacheConfiguration {
 		return config;
 	}
 
+	/**
+	 * 根据redisson.codec创建编解码,压缩编解码按compressionConfig包装内部编解码
+	 */
+	private Codec createCodec(){
+		try {
+			Class<?> codecClass = Class.forName(redissonProperties.getCodec());
+			if (CompressionCodec.class.isAssignableFrom(codecClass)) {
+				RedissonCompressionConfig compressionConfig = redissonProperties.getCompressionConfig();
+				Codec innerCodec = createCodec(Class.forName(compressionConfig.getInnerCodec()));
+				CompressionCodec.Algorithm algorithm = CompressionCodec.Algorithm.valueOf(compressionConfig.getAlgorithm().toUpperCase());
+				return new CompressionCodec(innerCodec, algorithm, compressionConfig.getThreshold());
+			}
+			return createCodec(codecClass);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private Codec createCodec(Class<?> codecClass) throws ReflectiveOperationException {
+		if (PooledKryoCodec.class.isAssignableFrom(codecClass)) {
+			RedissonKryoConfig kryoConfig = redissonProperties.getKryoConfig();
+			List<Class<?>> registeredClasses = new ArrayList<>();
+			for (String className : kryoConfig.getRegisteredClasses()) {
+				registeredClasses.add(Class.forName(className));
+			}
+			return new PooledKryoCodec(registeredClasses, kryoConfig.getRegistrationRequired(), kryoConfig.getReferences(),
+					kryoConfig.getBufferSize(), null);
+		}
+		return (Codec) codecClass.newInstance();
+	}
+
+	/**
+	 * 根据multipleServerConfig.loadBalancer创建负载均衡,按延迟选择时使用loadBalancerConfig
+	 */
+	private LoadBalancer createLoadBalancer(RedissonMultipleServerConfig multipleServerConfig) {
+		try {
+			Class<?> loadBalancerClass = Class.forName(multipleServerConfig.getLoadBalancer());
+			if (!LatencyAwareLoadBalancer.class.isAssignableFrom(loadBalancerClass)) {
+				return (LoadBalancer) loadBalancerClass.newInstance();
+			}
+			//子类同样通过带配置的构造方法创建
+			LatencyAwareLoadBalancer loadBalancer = (LatencyAwareLoadBalancer) loadBalancerClass
+					.getConstructor(RedissonLoadBalancerConfig.class).newInstance(redissonProperties.getLoadBalancerConfig());
+			loadBalancers.add(loadBalancer);
+			return loadBalancer;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * redisson关闭时不会停止负载均衡器,客户端bean依赖本配置类,先于这里销毁
+	 */
+	@PreDestroy
+	public void shutdownLoadBalancers() {
+		for (LatencyAwareLoadBalancer loadBalancer : loadBalancers) {
+			loadBalancer.shutdown();
+		}
+		loadBalancers.clear();
+	}
+
 	private String prefixAddress(String address){
 		if(!StringUtils.isEmpty(address)&&!address.startsWith("redis")){
 			return "redis://"+address;
@@ -318,10 +491,32 @@ public class CacheConfiguration {
 	}
 
 	@Bean
+	@ConditionalOnProperty(name = "redisson.startup-config.lazy", havingValue = "false", matchIfMissing = true)
 	public RedissonConnectionFactory redissonConnectionFactory(RedissonClient redisson) {
 		return new RedissonConnectionFactory(redisson);
 	}
 
+	/**
+	 * 延迟启动时redis不可用也能创建,连接在首次使用时获取
+	 */
+	@Bean("redissonConnectionFactory")
+	@ConditionalOnProperty(name = "redisson.startup-config.lazy", havingValue = "true")
+	public LazyRedisConnectionFactory lazyRedissonConnectionFactory(RedissonClient redisson) {
+		return new LazyRedisConnectionFactory(redisson);
+	}
+
+	@Configuration
+	@ConditionalOnClass(HealthIndicator.class)
+	@ConditionalOnProperty(name = "redisson.startup-config.lazy", havingValue = "true")
+	protected class RedissonStartupHealthConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(name = "redissonStartupHealthIndicator")
+		public HealthIndicator redissonStartupHealthIndicator(RedissonClient redissonClient) {
+			return new RedissonStartupHealthIndicator(redissonClient);
+		}
+	}
+
 	@Bean("redisTemplate")
 	public RedisTemplate getRedisTemplate(RedisConnectionFactory redissonConnectionFactory) {
 		RedisTemplate<Object, Object> redisTemplate = new RedisTemplate();
@@ -350,7 +545,167 @@ public class CacheConfiguration {
 
 	@Bean
 	public RedisSerializer valueSerializer() {
+		if ("codec".equalsIgnoreCase(redissonProperties.getValueSerializer())) {
+			return new CodecRedisSerializer(createCodec());
+		}
 		return new GenericFastJsonRedisSerializer();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public RedissonObjectAsync redissonObjectAsync() {
+		return new RedissonObjectAsync();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public RedissonCollectionAsync redissonCollectionAsync() {
+		return new RedissonCollectionAsync();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public RedissonBinaryAsync redissonBinaryAsync() {
+		return new RedissonBinaryAsync();
+	}
+
+	/**
+	 * 响应式操作,基于异步RFuture转换,与同步操作共用同一个redisson客户端的连接池
+	 */
+	@Configuration
+	@ConditionalOnClass(Mono.class)
+	protected class RedissonReactiveConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public RedissonObjectReactive redissonObjectReactive() {
+			return new RedissonObjectReactive();
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public RedissonCollectionReactive redissonCollectionReactive() {
+			return new RedissonCollectionReactive();
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public RedissonBinaryReactive redissonBinaryReactive() {
+			return new RedissonBinaryReactive();
+		}
+	}
+
+	/**
+	 * 自动调节和防穿透的Micrometer指标
+	 */
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	protected class RedissonMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnProperty(name = "redisson.autotune-config.enabled", havingValue = "true")
+		public PoolAutotunerMetrics poolAutotunerMetrics(PoolAutotuner poolAutotuner) {
+			return new PoolAutotunerMetrics(poolAutotuner);
+		}
+
+		@Bean
+		@ConditionalOnProperty(name = "redisson.negative-lookup-config.enabled", havingValue = "true")
+		public NegativeLookupGuardMetrics negativeLookupGuardMetrics(NegativeLookupGuard negativeLookupGuard) {
+			return new NegativeLookupGuardMetrics(negativeLookupGuard);
+		}
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public KeyTagExtractor keyTagExtractor() {
+		RedissonMetricsConfig metricsConfig = redissonProperties.getMetricsConfig();
+		return new KeyPrefixTagExtractor(metricsConfig.getKeyPrefixDelimiter(), metricsConfig.getKeyPrefixSegments());
+	}
+
+	/**
+	 * 操作拦截器,依次组合操作统计,热点键统计和自动调节
+	 * 操作统计只在存在micrometer和MeterRegistry时使用Micrometer记录
+	 */
+	@Bean
+	@ConditionalOnMissingBean(name = "operationInterceptor")
+	public OperationInterceptor operationInterceptor(ObjectProvider<MeterRegistry> meterRegistry, KeyTagExtractor keyTagExtractor,
+													 ObjectProvider<HotKeyTracker> hotKeyTracker, ObjectProvider<PoolAutotuner> poolAutotuner) {
+		List<OperationInterceptor> interceptors = new ArrayList<>();
+		//micrometer是可选依赖,不存在时不能解析MeterRegistry
+		if (MICROMETER_PRESENT && redissonProperties.getMetricsConfig().getEnabled()) {
+			MeterRegistry registry = meterRegistry.getIfAvailable();
+			if (registry != null) {
+				interceptors.add(new MicrometerOperationInterceptor(registry, keyTagExtractor));
+			}
+		}
+		interceptors.add(hotKeyTracker.getIfAvailable());
+		interceptors.add(poolAutotuner.getIfAvailable());
+		return CompositeOperationInterceptor.of(interceptors);
+	}
+
+	/**
+	 * 连接池自动调节,限制操作bean同时在途的命令数
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "redisson.autotune-config.enabled", havingValue = "true")
+	public PoolAutotuner poolAutotuner() {
+		return new PoolAutotuner(redissonProperties.getAutotuneConfig());
+	}
+
+	/**
+	 * 防缓存穿透,布隆过滤器在本地判断键是否存在
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "redisson.negative-lookup-config.enabled", havingValue = "true")
+	public NegativeLookupGuard negativeLookupGuard(RedissonRouter redissonRouter) {
+		return new NegativeLookupGuard(redissonRouter, redissonProperties.getNegativeLookupConfig());
+	}
+
+	/**
+	 * 堆外本地缓存,RedissonObject和RedissonBinary共用
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "redisson.off-heap-cache-config.enabled", havingValue = "true")
+	public OffHeapCache offHeapCache(RedissonClient redissonClient) {
+		return new OffHeapCache(redissonClient, redissonProperties.getOffHeapCacheConfig());
+	}
+
+	/**
+	 * 热点键统计,结果通过日志和actuator端点输出
+	 */
+	@Bean
+	@ConditionalOnProperty(name = "redisson.hot-key-config.enabled", havingValue = "true")
+	public HotKeyTracker hotKeyTracker() {
+		return new HotKeyTracker(redissonProperties.getHotKeyConfig());
+	}
+
+	@Configuration
+	@ConditionalOnClass(Endpoint.class)
+	@ConditionalOnProperty(name = "redisson.hot-key-config.enabled", havingValue = "true")
+	protected class RedissonHotKeyEndpointConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public HotKeyEndpoint hotKeyEndpoint(HotKeyTracker hotKeyTracker) {
+			return new HotKeyEndpoint(hotKeyTracker);
+		}
+	}
+
+	/**
+	 * 基于redisson的spring cache,各缓存的策略见redisson.caches
+	 * 只在开启了@EnableCaching时注册,redisson.cache.enabled=false时交给spring.cache.type选择的CacheManager
+	 */
+	@Configuration
+	@ConditionalOnClass(CacheManager.class)
+	@ConditionalOnBean(CacheAspectSupport.class)
+	@ConditionalOnProperty(name = "redisson.cache.enabled", havingValue = "true", matchIfMissing = true)
+	protected class RedissonCacheManagerConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(CacheManager.class)
+		public CacheManager cacheManager(RedissonRouter redissonRouter) {
+			return new RedissonPolicyCacheManager(redissonRouter, redissonProperties.getCaches(), redissonProperties.getDataValidTime());
+		}
+	}
+
 }
@@ -0,0 +1,64 @@
+package com.github.ciweigg.redisson;
+
+import org.redisson.api.RedissonClient;
+import org.redisson.spring.data.connection.RedissonConnectionFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+/**
+ * 后台创建客户端时使用的连接工厂
+ * RedissonConnection需要实际的Redisson实例,第一次获取连接时才创建RedissonConnectionFactory
+ */
+class LazyRedisConnectionFactory implements RedisConnectionFactory {
+
+    private final RedissonClient redissonClient;
+
+    private volatile RedissonConnectionFactory delegate;
+
+    LazyRedisConnectionFactory(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return delegate().getConnection();
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return delegate().getClusterConnection();
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate().getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate().getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate().translateExceptionIfPossible(ex);
+    }
+
+    private RedissonConnectionFactory delegate() {
+        RedissonConnectionFactory factory = delegate;
+        if (factory == null) {
+            synchronized (this) {
+                factory = delegate;
+                if (factory == null) {
+                    factory = new RedissonConnectionFactory(LazyRedissonClient.unwrap(redissonClient));
+                    delegate = factory;
+                }
+            }
+        }
+        return factory;
+    }
+
+}
@@ -0,0 +1,215 @@
+package com.github.ciweigg.redisson;
+
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 后台创建的redisson客户端
+ * Redisson.create会同步建立所有节点的最小空闲连接,这里放到后台线程执行,返回的代理在客户端就绪前调用时阻塞等待,
+ * getConfig直接返回配置;创建失败时按retryInterval起翻倍到maxRetryInterval的间隔重试,直到成功或调用shutdown,
+ * 就绪前调用shutdown停止重试,等待中的调用方以异常结束
+ */
+public final class LazyRedissonClient implements InvocationHandler {
+
+    private final Config config;
+
+    private final long timeout;
+
+    private final long retryInterval;
+
+    private final long maxRetryInterval;
+
+    private final CompletableFuture<RedissonClient> client = new CompletableFuture<>();
+
+    private volatile Thread thread;
+
+    private volatile boolean shutdown;
+
+    /**
+     * 最近一次创建失败的原因
+     */
+    private volatile Throwable lastFailure;
+
+    private LazyRedissonClient(Config config, long timeout, long retryInterval, long maxRetryInterval) {
+        this.config = config;
+        this.timeout = timeout;
+        this.retryInterval = retryInterval;
+        this.maxRetryInterval = maxRetryInterval;
+    }
+
+    /**
+     * 在后台线程创建客户端
+     *
+     * @param config           客户端配置
+     * @param timeout          就绪前调用方最长等待时间 单位毫秒
+     * @param retryInterval    创建失败后第一次重试的间隔 单位毫秒
+     * @param maxRetryInterval 重试间隔的上限 单位毫秒
+     * @return 客户端代理
+     */
+    public static RedissonClient create(Config config, long timeout, long retryInterval, long maxRetryInterval) {
+        LazyRedissonClient handler = new LazyRedissonClient(config, timeout, retryInterval, maxRetryInterval);
+        Thread thread = new Thread(handler::start, "redisson-startup");
+        thread.setDaemon(true);
+        handler.thread = thread;
+        thread.start();
+        return (RedissonClient) Proxy.newProxyInstance(RedissonClient.class.getClassLoader(),
+                new Class<?>[]{RedissonClient.class}, handler);
+    }
+
+    /**
+     * 客户端是否已经就绪,非后台创建的客户端总是返回true
+     *
+     * @param redissonClient
+     * @return
+     */
+    public static boolean isReady(RedissonClient redissonClient) {
+        LazyRedissonClient handler = handlerOf(redissonClient);
+        return handler == null || (handler.client.isDone() && !handler.client.isCompletedExceptionally());
+    }
+
+    /**
+     * 就绪前最近一次创建失败的原因,失败后仍在重试
+     *
+     * @param redissonClient
+     * @return 已就绪或未失败过返回null
+     */
+    public static Throwable failure(RedissonClient redissonClient) {
+        LazyRedissonClient handler = handlerOf(redissonClient);
+        if (handler == null || isReady(redissonClient)) {
+            return null;
+        }
+        return handler.lastFailure;
+    }
+
+    /**
+     * 获取实际的客户端,未就绪时等待
+     *
+     * @param redissonClient
+     * @return
+     */
+    public static RedissonClient unwrap(RedissonClient redissonClient) {
+        LazyRedissonClient handler = handlerOf(redissonClient);
+        return handler == null ? redissonClient : handler.await();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        int parameters = method.getParameterCount();
+        if (name.equals("equals") && parameters == 1) {
+            return proxy == args[0];
+        }
+        if (name.equals("hashCode") && parameters == 0) {
+            return System.identityHashCode(proxy);
+        }
+        if (name.equals("toString") && parameters == 0) {
+            return "LazyRedissonClient(ready=" + client.isDone() + ")";
+        }
+        if (shutdown || !client.isDone()) {
+            if (name.equals("getConfig")) {
+                return config;
+            }
+            if (name.equals("isShutdown") || name.equals("isShuttingDown")) {
+                return shutdown;
+            }
+            if (name.equals("shutdown")) {
+                shutdown(method, args);
+                return null;
+            }
+        }
+        return invoke(method, await(), args);
+    }
+
+    private void start() {
+        long interval = retryInterval;
+        while (!shutdown) {
+            try {
+                RedissonClient created = Redisson.create(config);
+                synchronized (this) {
+                    if (!shutdown) {
+                        client.complete(created);
+                        return;
+                    }
+                }
+                //创建期间调用了shutdown
+                created.shutdown();
+                return;
+            } catch (Throwable e) {
+                lastFailure = e;
+            }
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            interval = Math.min(interval * 2, maxRetryInterval);
+        }
+    }
+
+    /**
+     * 就绪前停止重试,等待的调用方以异常结束;与创建成功并发时在就绪后关闭
+     */
+    private void shutdown(Method method, Object[] args) {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            if (!client.isDone()) {
+                shutdown = true;
+                client.completeExceptionally(new IllegalStateException("redisson client is shut down before ready", lastFailure));
+                thread.interrupt();
+                return;
+            }
+        }
+        client.thenAccept(c -> invoke(method, c, args));
+    }
+
+    private RedissonClient await() {
+        try {
+            return client.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("redisson client is not ready after " + timeout + "ms", e);
+        }
+    }
+
+    private static Object invoke(Method method, RedissonClient target, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getTargetException();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static LazyRedissonClient handlerOf(RedissonClient redissonClient) {
+        if (!Proxy.isProxyClass(redissonClient.getClass())) {
+            return null;
+        }
+        InvocationHandler handler = Proxy.getInvocationHandler(redissonClient);
+        return handler instanceof LazyRedissonClient ? (LazyRedissonClient) handler : null;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.github.ciweigg.redisson;
+
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * 客户端启动状态,后台创建的客户端就绪前为OUT_OF_SERVICE,创建失败重试期间同样为OUT_OF_SERVICE并带上最近一次失败的原因,
+ * 可以作为就绪探针
+ */
+public class RedissonStartupHealthIndicator extends AbstractHealthIndicator {
+
+    private final RedissonClient redissonClient;
+
+    public RedissonStartupHealthIndicator(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        if (LazyRedissonClient.isReady(redissonClient)) {
+            builder.up();
+            return;
+        }
+        Throwable failure = LazyRedissonClient.failure(redissonClient);
+        if (failure != null) {
+            builder.outOfService().withDetail("reason", "redisson client is retrying").withException(failure);
+        } else {
+            builder.outOfService().withDetail("reason", "redisson client is starting");
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.github.ciweigg.shard;
+
+import com.github.ciweigg.support.KeySupport;
+import io.netty.util.CharsetUtil;
+import org.redisson.api.RedissonClient;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希路由(ketama)
+ * 每个节点按 地址-序号 的MD5生成virtualNodes个虚拟节点,键按MD5落到环上顺时针第一个虚拟节点,
+ * 增减节点时只有约1/N的键改变归属;带hash tag的键按hash tag路由,同一个hash tag的键总在同一个节点
+ */
+public class ConsistentHashRouter implements RedissonRouter {
+
+    private final TreeMap<Long, RedissonClient> ring = new TreeMap<>();
+
+    private final List<RedissonClient> clients;
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    /**
+     * @param shards       节点地址与客户端,按配置顺序
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    public ConsistentHashRouter(Map<String, RedissonClient> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("sharded mode requires at least one node address");
+        }
+        this.clients = Collections.unmodifiableList(new ArrayList<>(shards.values()));
+        for (Map.Entry<String, RedissonClient> shard : shards.entrySet()) {
+            //每次MD5生成4个虚拟节点
+            for (int i = 0; i < Math.max(1, virtualNodes / 4); i++) {
+                byte[] digest = md5(shard.getKey() + "-" + i);
+                for (int h = 0; h < 4; h++) {
+                    ring.put(hash(digest, h), shard.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public RedissonClient route(String name) {
+        String tag = KeySupport.hashTag(name);
+        long hash = hash(md5(tag != null ? tag : name), 0);
+        Map.Entry<Long, RedissonClient> entry = ring.ceilingEntry(hash);
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    @Override
+    public List<RedissonClient> clients() {
+        return clients;
+    }
+
+    /**
+     * 关闭全部客户端
+     */
+    public void shutdown() {
+        for (RedissonClient client : clients) {
+            client.shutdown();
+        }
+    }
+
+    private static byte[] md5(String key) {
+        MessageDigest digest = MD5.get();
+        digest.reset();
+        return digest.digest(key.getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static long hash(byte[] digest, int index) {
+        return ((long) (digest[3 + index * 4] & 0xFF) << 24)
+                | ((long) (digest[2 + index * 4] & 0xFF) << 16)
+                | ((long) (digest[1 + index * 4] & 0xFF) << 8)
+                | (digest[index * 4] & 0xFF);
+    }
+
+}
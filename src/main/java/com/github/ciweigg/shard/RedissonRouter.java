@@ -0,0 +1,56 @@
+package com.github.ciweigg.shard;
+
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按键选择客户端
+ * 分片模式下每个地址一个独立的客户端,其它模式只有一个客户端
+ */
+public interface RedissonRouter {
+
+    /**
+     * 键所在的客户端
+     *
+     * @param name 键,带hash tag时按hash tag路由
+     * @return
+     */
+    RedissonClient route(String name);
+
+    /**
+     * 全部客户端,第一个为主客户端,用于topic、锁等不按键分片的功能
+     *
+     * @return
+     */
+    List<RedissonClient> clients();
+
+    /**
+     * 按客户端分组
+     *
+     * @param names 键
+     * @return 保持各组内键的原有顺序
+     */
+    default Map<RedissonClient, List<String>> group(Collection<String> names) {
+        Map<RedissonClient, List<String>> groups = new LinkedHashMap<>();
+        for (String name : names) {
+            groups.computeIfAbsent(route(name), client -> new ArrayList<>()).add(name);
+        }
+        return groups;
+    }
+
+    /**
+     * 只有一个客户端的路由
+     *
+     * @param redissonClient
+     * @return
+     */
+    static RedissonRouter single(RedissonClient redissonClient) {
+        return new SingleRedissonRouter(redissonClient);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.github.ciweigg.shard;
+
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 按分片拆分的RBatch,每个分片一个管道,执行时各分片并行发送
+ */
+public class ShardedBatch {
+
+    private final RedissonRouter router;
+
+    private final BatchOptions options;
+
+    private final Map<RedissonClient, RBatch> batches = new LinkedHashMap<>();
+
+    public ShardedBatch(RedissonRouter router) {
+        this(router, BatchOptions.defaults());
+    }
+
+    public ShardedBatch(RedissonRouter router, BatchOptions options) {
+        this.router = router;
+        this.options = options;
+    }
+
+    /**
+     * 键所在分片的RBatch
+     *
+     * @param name 键
+     * @return
+     */
+    public RBatch batchFor(String name) {
+        return batches.computeIfAbsent(router.route(name), client -> client.createBatch(options));
+    }
+
+    /**
+     * 并行执行全部分片
+     *
+     * @return 全部分片完成后完成,任一分片失败则失败
+     */
+    public CompletableFuture<Void> executeAsync() {
+        List<CompletableFuture<Object>> futures = new ArrayList<>(batches.size());
+        for (RBatch batch : batches.values()) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            batch.executeAsync().whenComplete((result, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(result);
+                }
+            });
+            futures.add(future);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 并行执行全部分片并等待完成
+     */
+    public void execute() {
+        try {
+            executeAsync().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+}
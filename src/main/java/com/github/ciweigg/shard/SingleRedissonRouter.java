@@ -0,0 +1,32 @@
+package com.github.ciweigg.shard;
+
+import org.redisson.api.RedissonClient;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 只有一个客户端的路由,单机、集群、哨兵、主从、云托管模式使用
+ */
+class SingleRedissonRouter implements RedissonRouter {
+
+    private final RedissonClient redissonClient;
+
+    private final List<RedissonClient> clients;
+
+    SingleRedissonRouter(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+        this.clients = Collections.singletonList(redissonClient);
+    }
+
+    @Override
+    public RedissonClient route(String name) {
+        return redissonClient;
+    }
+
+    @Override
+    public List<RedissonClient> clients() {
+        return clients;
+    }
+
+}
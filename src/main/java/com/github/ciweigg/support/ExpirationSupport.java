@@ -0,0 +1,101 @@
+package com.github.ciweigg.support;
+
+import com.github.ciweigg.properties.RedissonExpirationConfig;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RScriptAsync;
+import org.redisson.client.codec.LongCodec;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 过期时间相关工具
+ */
+public final class ExpirationSupport {
+
+    /**
+     * 只续期已经设置过期时间的键,不存在或永久的键保持不变;续期时间不是正数时什么都不做,PEXPIRE负数会删除键
+     */
+    private static final String TOUCH_SCRIPT = "if tonumber(ARGV[1]) > 0 and redis.call('pttl', KEYS[1]) > 0 then "
+            + "return redis.call('pexpire', KEYS[1], ARGV[1]); "
+            + "end; "
+            + "return 0;";
+
+    private ExpirationSupport() {
+    }
+
+    /**
+     * 对过期时间做随机抖动,结果在[time*(1-jitterRatio), time]之间均匀分布
+     *
+     * @param time   缓存时间 单位毫秒 -1 永久缓存
+     * @param config 过期时间配置
+     * @return 永久缓存或未开启抖动时原样返回
+     */
+    public static Long jitter(Long time, RedissonExpirationConfig config) {
+        if (time == null || time <= 0 || config == null || config.getJitterRatio() == null || config.getJitterRatio() <= 0) {
+            return time;
+        }
+        long spread = (long) (time * Math.min(config.getJitterRatio(), 1.0));
+        if (spread <= 0) {
+            return time;
+        }
+        //至少保留1毫秒,0在redis中表示立即过期
+        return Math.max(1L, time - ThreadLocalRandom.current().nextLong(spread + 1));
+    }
+
+    /**
+     * 是否开启滑动过期
+     * 续期时间不是正数时(未配置slidingTime且dataValidTime为-1永久缓存)视为关闭
+     *
+     * @param config        过期时间配置
+     * @param dataValidTime 默认缓存时间
+     * @return
+     */
+    public static boolean sliding(RedissonExpirationConfig config, Long dataValidTime) {
+        return config != null && Boolean.TRUE.equals(config.getSlidingExpiration()) && baseSlidingTime(config, dataValidTime) > 0;
+    }
+
+    /**
+     * 滑动过期读取后重置的过期时间,已做随机抖动,只在sliding返回true时调用
+     *
+     * @param config        过期时间配置
+     * @param dataValidTime 默认缓存时间
+     * @return
+     */
+    public static long slidingTime(RedissonExpirationConfig config, Long dataValidTime) {
+        return jitter(baseSlidingTime(config, dataValidTime), config);
+    }
+
+    private static long baseSlidingTime(RedissonExpirationConfig config, Long dataValidTime) {
+        Long time = config.getSlidingTime() != null ? config.getSlidingTime() : dataValidTime;
+        return time == null ? -1 : time;
+    }
+
+    /**
+     * 在管道中追加一条续期命令,与读取命令一起发送,不增加往返
+     *
+     * @param batch 管道
+     * @param name  键
+     * @param time  续期后的过期时间 单位毫秒
+     * @return 1 已续期,0 键不存在或没有过期时间
+     */
+    public static RFuture<Long> touchAsync(RBatch batch, String name, long time) {
+        return touchAsync(batch.getScript(LongCodec.INSTANCE), name, time);
+    }
+
+    /**
+     * 异步续期
+     *
+     * @param script 脚本对象
+     * @param name   键
+     * @param time   续期后的过期时间 单位毫秒
+     * @return 1 已续期,0 键不存在或没有过期时间
+     */
+    public static RFuture<Long> touchAsync(RScriptAsync script, String name, long time) {
+        return script.evalAsync(RScript.Mode.READ_WRITE, TOUCH_SCRIPT, RScript.ReturnType.INTEGER,
+                Collections.singletonList(name), time);
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.github.ciweigg.support;
+
+import io.netty.util.CharsetUtil;
+import org.redisson.connection.CRC16;
+
+/**
+ * 键相关工具
+ */
+public final class KeySupport {
+
+    private static final int SLOTS = 16384;
+
+    private KeySupport() {
+    }
+
+    /**
+     * 获取键中的hash tag,规则与redis集群一致:第一个{与其后第一个}之间的非空内容
+     *
+     * @param name 键
+     * @return 没有hash tag时返回null
+     */
+    public static String hashTag(String name) {
+        int start = name.indexOf('{');
+        if (start == -1) {
+            return null;
+        }
+        int end = name.indexOf('}', start + 1);
+        if (end == -1 || end == start + 1) {
+            return null;
+        }
+        return name.substring(start + 1, end);
+    }
+
+    /**
+     * 生成与name在同一个slot的键,用于lua脚本和事务中同时操作多个键
+     * 没有hash tag的键直接用{name}包裹;name中含有}时包裹后的tag会被截断,
+     * 改用一个与name的slot相同的短tag作前缀
+     *
+     * @param name   原始键
+     * @param suffix 后缀
+     * @return
+     */
+    public static String sameSlotKey(String name, String suffix) {
+        if (hashTag(name) != null) {
+            return name + suffix;
+        }
+        if (name.indexOf('}') == -1) {
+            return "{" + name + "}" + suffix;
+        }
+        return "{" + SlotTags.TAGS[slot(name)] + "}" + name + suffix;
+    }
+
+    /**
+     * redis集群中没有hash tag的键所在的slot
+     */
+    private static int slot(String name) {
+        return CRC16.crc16(name.getBytes(CharsetUtil.UTF_8)) % SLOTS;
+    }
+
+    /**
+     * 每个slot对应的一个短tag,首次使用时按36进制依次枚举生成
+     */
+    private static final class SlotTags {
+
+        private static final String[] TAGS = new String[SLOTS];
+
+        static {
+            int remaining = SLOTS;
+            for (long i = 0; remaining > 0; i++) {
+                String tag = Long.toString(i, 36);
+                int slot = slot(tag);
+                if (TAGS[slot] == null) {
+                    TAGS[slot] = tag;
+                    remaining--;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.github.ciweigg.cache;
+
+import com.github.ciweigg.properties.RedissonOffHeapCacheConfig;
+import org.junit.After;
+import org.junit.Test;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 每段4个64字节的块,一个256字节的值占满一段
+ */
+public class OffHeapCacheTest {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private static final int SEGMENT_SIZE = 4 * BLOCK_SIZE;
+
+    private OffHeapCache cache;
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void readsValueSpanningBlocks() {
+        cache = create(60000L);
+        byte[] value = value(150, 1);
+        assertTrue(cache.put("a", value, cache.generation("a")));
+        assertArrayEquals(value, cache.get("a"));
+    }
+
+    @Test
+    public void overwriteReleasesPreviousBlocks() {
+        cache = create(60000L);
+        byte[] last = null;
+        for (int i = 0; i < 1000; i++) {
+            last = value(SEGMENT_SIZE, i);
+            cache.put("a", last, cache.generation("a"));
+        }
+        assertArrayEquals(last, cache.get("a"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWhenSegmentIsFull() {
+        cache = create(60000L);
+        List<String> names = sameSegment(3);
+        byte[] first = value(2 * BLOCK_SIZE, 1);
+        byte[] second = value(2 * BLOCK_SIZE, 2);
+        byte[] third = value(2 * BLOCK_SIZE, 3);
+        cache.put(names.get(0), first, cache.generation(names.get(0)));
+        cache.put(names.get(1), second, cache.generation(names.get(1)));
+        cache.get(names.get(0));
+        cache.put(names.get(2), third, cache.generation(names.get(2)));
+        assertArrayEquals(first, cache.get(names.get(0)));
+        assertNull(cache.get(names.get(1)));
+        assertArrayEquals(third, cache.get(names.get(2)));
+    }
+
+    @Test
+    public void evictReleasesBlocks() {
+        cache = create(60000L);
+        List<String> names = sameSegment(2);
+        cache.put(names.get(0), value(SEGMENT_SIZE, 1), cache.generation(names.get(0)));
+        cache.evict(names.get(0));
+        assertNull(cache.get(names.get(0)));
+        byte[] value = value(SEGMENT_SIZE, 2);
+        cache.put(names.get(1), value, cache.generation(names.get(1)));
+        assertArrayEquals(value, cache.get(names.get(1)));
+    }
+
+    @Test
+    public void expiredValuesAreNotReturned() {
+        cache = create(-1L);
+        List<String> names = sameSegment(2);
+        cache.put(names.get(0), value(SEGMENT_SIZE, 1), cache.generation(names.get(0)));
+        assertNull(cache.get(names.get(0)));
+        cache.put(names.get(1), value(SEGMENT_SIZE, 2), cache.generation(names.get(1)));
+        assertNull(cache.get(names.get(1)));
+    }
+
+    @Test
+    public void skipsPutAfterInvalidation() {
+        cache = create(60000L);
+        long generation = cache.generation("a");
+        cache.evict("a");
+        assertTrue(cache.put("a", value(100, 1), generation));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void invalidatingOtherSegmentKeepsPut() {
+        cache = create(60000L);
+        String other = otherSegment("a");
+        long generation = cache.generation("a");
+        cache.evict(other);
+        byte[] value = value(100, 1);
+        assertTrue(cache.put("a", value, generation));
+        assertArrayEquals(value, cache.get("a"));
+    }
+
+    @Test
+    public void rejectsValuesOutsideSizeRange() {
+        cache = create(60000L);
+        assertFalse(cache.put("a", value(SEGMENT_SIZE + 1, 1), cache.generation("a")));
+        assertFalse(cache.put("b", new byte[0], cache.generation("b")));
+        assertNull(cache.get("a"));
+    }
+
+    private static OffHeapCache create(Long timeToLive) {
+        RedissonOffHeapCacheConfig config = new RedissonOffHeapCacheConfig();
+        config.setCapacity(16L * SEGMENT_SIZE);
+        config.setBlockSize(BLOCK_SIZE);
+        config.setMinValueSize(1);
+        config.setMaxValueSize(1024);
+        config.setTimeToLive(timeToLive);
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getTopic(anyString(), any(Codec.class))).thenReturn(mock(RTopic.class));
+        return new OffHeapCache(redissonClient, config);
+    }
+
+    private static byte[] value(int length, int seed) {
+        byte[] value = new byte[length];
+        Arrays.fill(value, (byte) seed);
+        value[length - 1] = (byte) (seed >>> 8);
+        return value;
+    }
+
+    /**
+     * 与OffHeapCache.segmentFor相同的分段规则
+     */
+    private static int segment(String name) {
+        int h = name.hashCode();
+        h ^= (h >>> 16);
+        return h & 15;
+    }
+
+    private static List<String> sameSegment(int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; names.size() < count; i++) {
+            if (segment("key:" + i) == 0) {
+                names.add("key:" + i);
+            }
+        }
+        return names;
+    }
+
+    private static String otherSegment(String name) {
+        for (int i = 0; ; i++) {
+            if (segment("key:" + i) != segment(name)) {
+                return "key:" + i;
+            }
+        }
+    }
+
+}
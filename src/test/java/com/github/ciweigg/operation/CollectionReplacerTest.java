@@ -0,0 +1,120 @@
+package com.github.ciweigg.operation;
+
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class CollectionReplacerTest {
+
+    @Test
+    public void setDiffRemovesAndAdds() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffSet(set("a", "b", "c"), set("b", "c", "d"), args);
+        assertEquals(2, changes);
+        assertEquals(Arrays.asList(1, buf("a"), buf("d")), args);
+    }
+
+    @Test
+    public void setDiffToEmptyRemovesAll() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffSet(set("a", "b"), set(), args);
+        assertEquals(2, changes);
+        assertEquals(Arrays.asList(2, buf("a"), buf("b")), args);
+    }
+
+    @Test
+    public void setDiffWithoutChanges() {
+        List<Object> args = new ArrayList<>();
+        assertEquals(0, CollectionReplacer.diffSet(set("a", "b"), set("b", "a"), args));
+        assertEquals(Collections.singletonList(0), args);
+    }
+
+    @Test
+    public void mapDiffRemovesUpdatesAndAdds() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffMap(map("f1", "v1", "f2", "v2", "f3", "v3"),
+                map("f1", "v1", "f2", "x", "f4", "v4"), args);
+        assertEquals(3, changes);
+        assertEquals(Arrays.asList(1, buf("f3"), buf("f2"), buf("x"), buf("f4"), buf("v4")), args);
+    }
+
+    @Test
+    public void mapDiffToEmptyRemovesAll() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffMap(map("f1", "v1", "f2", "v2"), map(), args);
+        assertEquals(2, changes);
+        assertEquals(Arrays.asList(2, buf("f1"), buf("f2")), args);
+    }
+
+    @Test
+    public void listDiffSetsChangedPositionsAndTrims() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffList(list("a", "b", "c", "d"), list("a", "x", "c"), args);
+        assertEquals(2, changes);
+        assertEquals(Arrays.asList(3, 1, 1, buf("x")), args);
+    }
+
+    @Test
+    public void listDiffAppends() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffList(list("a"), list("a", "b", "c"), args);
+        assertEquals(2, changes);
+        assertEquals(Arrays.asList(3, 0, buf("b"), buf("c")), args);
+    }
+
+    @Test
+    public void listDiffToEmptyTruncates() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffList(list("a", "b"), list(), args);
+        assertEquals(2, changes);
+        assertEquals(Arrays.asList(0, 0), args);
+    }
+
+    @Test
+    public void listDiffFromEmpty() {
+        List<Object> args = new ArrayList<>();
+        long changes = CollectionReplacer.diffList(list(), list("a"), args);
+        assertEquals(1, changes);
+        assertEquals(Arrays.asList(1, 0, buf("a")), args);
+    }
+
+    private static ByteBuffer buf(String value) {
+        return ByteBuffer.wrap(value.getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static Set<ByteBuffer> set(String... values) {
+        Set<ByteBuffer> set = new LinkedHashSet<>();
+        for (String value : values) {
+            set.add(buf(value));
+        }
+        return set;
+    }
+
+    private static List<ByteBuffer> list(String... values) {
+        List<ByteBuffer> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(buf(value));
+        }
+        return list;
+    }
+
+    private static Map<ByteBuffer, ByteBuffer> map(String... pairs) {
+        Map<ByteBuffer, ByteBuffer> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(buf(pairs[i]), buf(pairs[i + 1]));
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.interceptor.OperationInterceptor;
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RAtomicLongAsync;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis中的计数用本地map模拟,管道中的INCRBY在加入时即生效
+ */
+public class RedissonCounterTest {
+
+    private final ConcurrentHashMap<String, AtomicLong> redis = new ConcurrentHashMap<>();
+
+    private RedissonClient redissonClient;
+
+    private RedissonCounter counter;
+
+    @Before
+    public void setUp() {
+        redissonClient = mock(RedissonClient.class);
+        when(redissonClient.createBatch(any(BatchOptions.class))).thenAnswer(invocation -> succeedingBatch());
+        when(redissonClient.getAtomicLong(anyString())).thenAnswer(invocation -> {
+            RAtomicLong atomicLong = mock(RAtomicLong.class);
+            when(atomicLong.get()).thenReturn(value(invocation.getArgument(0)));
+            return atomicLong;
+        });
+        RedissonRouter redissonRouter = mock(RedissonRouter.class);
+        when(redissonRouter.route(anyString())).thenReturn(redissonClient);
+        counter = new RedissonCounter();
+        ReflectionTestUtils.setField(counter, "redissonRouter", redissonRouter);
+        ReflectionTestUtils.setField(counter, "redissonProperties", new RedissonProperties());
+        ReflectionTestUtils.setField(counter, "operationInterceptor", OperationInterceptor.NONE);
+    }
+
+    @Test
+    public void flushWritesAccumulatedDelta() {
+        counter.increment("a");
+        counter.increment("a", 4);
+        counter.increment("b", -2);
+        assertEquals(5, counter.get("a"));
+        counter.flush();
+        assertEquals(5, value("a"));
+        assertEquals(-2, value("b"));
+        assertEquals(5, counter.get("a"));
+    }
+
+    @Test
+    public void keepsEveryIncrementWhileFlushRetiresCounters() throws Exception {
+        int threads = 8;
+        int increments = 20000;
+        String[] names = {"a", "b", "c", "d"};
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    counter.increment(names[ThreadLocalRandom.current().nextInt(names.length)]);
+                    if (i % 1000 == 0) {
+                        //留出空闲周期,让flush移除没有增量的计数器
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                counter.flush();
+            }
+        });
+        flusher.start();
+        done.await();
+        running.set(false);
+        flusher.join(5000);
+        counter.flush();
+        counter.flush();
+
+        long total = 0;
+        for (String name : names) {
+            total += value(name);
+        }
+        assertEquals((long) threads * increments, total);
+    }
+
+    @Test
+    public void failedWriteIsKeptForRetry() {
+        RBatch batch = mock(RBatch.class);
+        RAtomicLongAsync atomicLong = mock(RAtomicLongAsync.class);
+        when(batch.getAtomicLong(anyString())).thenReturn(atomicLong);
+        when(atomicLong.addAndGetAsync(anyLong())).thenReturn(new RedissonPromise<>());
+        doReturn(RedissonPromise.newFailedFuture(new IllegalStateException("down"))).when(batch).executeAsync();
+        when(redissonClient.createBatch(any(BatchOptions.class))).thenReturn(batch);
+
+        counter.increment("a", 3);
+        try {
+            counter.flush();
+            fail();
+        } catch (IllegalStateException e) {
+            //写入失败
+        }
+        assertEquals(3, counter.get("a"));
+
+        when(redissonClient.createBatch(any(BatchOptions.class))).thenAnswer(invocation -> succeedingBatch());
+        counter.flush();
+        assertEquals(3, value("a"));
+    }
+
+    private RBatch succeedingBatch() {
+        RBatch batch = mock(RBatch.class);
+        when(batch.getAtomicLong(anyString())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(0);
+            RAtomicLongAsync atomicLong = mock(RAtomicLongAsync.class);
+            when(atomicLong.addAndGetAsync(anyLong())).thenAnswer(add -> RedissonPromise.newSucceededFuture(
+                    redis.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(add.getArgument(0))));
+            return atomicLong;
+        });
+        doReturn(RedissonPromise.newSucceededFuture(null)).when(batch).executeAsync();
+        return batch;
+    }
+
+    private long value(String name) {
+        AtomicLong value = redis.get(name);
+        return value == null ? 0 : value.get();
+    }
+
+}
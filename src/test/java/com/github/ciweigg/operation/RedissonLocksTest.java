@@ -0,0 +1,157 @@
+package com.github.ciweigg.operation;
+
+import com.github.ciweigg.properties.RedissonProperties;
+import com.github.ciweigg.shard.RedissonRouter;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RedissonLocksTest {
+
+    private RLock rLock;
+
+    private RedissonProperties redissonProperties;
+
+    private RedissonLocks locks;
+
+    @Before
+    public void setUp() {
+        rLock = mock(RLock.class);
+        when(rLock.lockAsync(anyLong())).thenReturn(RedissonPromise.<Void>newSucceededFuture(null));
+        when(rLock.unlockAsync(anyLong())).thenReturn(RedissonPromise.<Void>newSucceededFuture(null));
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        when(redissonClient.getLock(anyString())).thenReturn(rLock);
+        RedissonRouter redissonRouter = mock(RedissonRouter.class);
+        when(redissonRouter.route(anyString())).thenReturn(redissonClient);
+        redissonProperties = new RedissonProperties();
+        locks = new RedissonLocks();
+        ReflectionTestUtils.setField(locks, "redissonRouter", redissonRouter);
+        ReflectionTestUtils.setField(locks, "redissonProperties", redissonProperties);
+        locks.init();
+    }
+
+    @Test
+    public void handsRemoteLockToLocalWaiter() throws Exception {
+        locks.lock("x");
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            locks.lock("x");
+            acquired.countDown();
+            await(release);
+            locks.unlock("x");
+        });
+        waiter.start();
+        awaitParked(waiter);
+        locks.unlock("x");
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        verify(rLock, times(1)).lockAsync(anyLong());
+        verify(rLock, never()).unlockAsync(anyLong());
+
+        release.countDown();
+        waiter.join(5000);
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    public void releasesRemoteLockAfterMaxHandoffs() throws Exception {
+        redissonProperties.getLockConfig().setMaxLocalHandoffs(0);
+        locks.lock("x");
+        Thread waiter = new Thread(() -> locks.executeLocked("x", () -> null));
+        waiter.start();
+        awaitParked(waiter);
+        locks.unlock("x");
+        waiter.join(5000);
+        assertFalse(waiter.isAlive());
+        verify(rLock, times(2)).lockAsync(anyLong());
+        verify(rLock, times(2)).unlockAsync(anyLong());
+    }
+
+    @Test
+    public void releasesLocalLockWhenRemoteTryLockTimesOut() throws Exception {
+        when(rLock.tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong()))
+                .thenReturn(RedissonPromise.newSucceededFuture(false));
+        assertFalse(locks.tryLock("x", 10, TimeUnit.MILLISECONDS));
+        assertFalse(locks.isHeldByCurrentThread("x"));
+
+        //本地锁已释放,其它线程重新获取redis锁,不会误认为已经持有
+        Thread other = new Thread(() -> locks.executeLocked("x", () -> null));
+        other.start();
+        other.join(5000);
+        assertFalse(other.isAlive());
+        verify(rLock, times(1)).lockAsync(anyLong());
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    public void tryLockTimesOutLocallyWithoutRedis() throws Exception {
+        locks.lock("x");
+        AtomicBoolean locked = new AtomicBoolean(true);
+        Thread other = new Thread(() -> locked.set(locks.tryLock("x", 20, TimeUnit.MILLISECONDS)));
+        other.start();
+        other.join(5000);
+        assertFalse(locked.get());
+        verify(rLock, never()).tryLockAsync(anyLong(), anyLong(), any(TimeUnit.class), anyLong());
+
+        locks.unlock("x");
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    public void reentrantUnlockReleasesOnLastHold() {
+        locks.lock("x");
+        locks.lock("x");
+        locks.unlock("x");
+        assertTrue(locks.isHeldByCurrentThread("x"));
+        verify(rLock, never()).unlockAsync(anyLong());
+        locks.unlock("x");
+        assertFalse(locks.isHeldByCurrentThread("x"));
+        verify(rLock, times(1)).lockAsync(anyLong());
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test(expected = IllegalMonitorStateException.class)
+    public void unlockWithoutHoldFails() {
+        locks.unlock("x");
+    }
+
+    /**
+     * 等待线程在本地公平锁上排队
+     */
+    private static void awaitParked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("thread did not queue on the local lock");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.github.ciweigg.shard;
+
+import org.junit.Test;
+import org.redisson.api.RedissonClient;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ConsistentHashRouterTest {
+
+    private static final int KEYS = 30000;
+
+    @Test
+    public void distributesKeysEvenly() {
+        Map<String, RedissonClient> shards = shards(3);
+        ConsistentHashRouter router = new ConsistentHashRouter(shards, 160);
+        Map<RedissonClient, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(router.route("user:" + i), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            double share = (double) count / KEYS;
+            assertTrue("share " + share, share > 0.25 && share < 0.42);
+        }
+    }
+
+    @Test
+    public void addingNodeOnlyMovesKeysToIt() {
+        Map<String, RedissonClient> shards = shards(3);
+        ConsistentHashRouter before = new ConsistentHashRouter(shards, 160);
+        RedissonClient added = mock(RedissonClient.class);
+        Map<String, RedissonClient> grown = new LinkedHashMap<>(shards);
+        grown.put("redis://10.0.0.4:6379", added);
+        ConsistentHashRouter after = new ConsistentHashRouter(grown, 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String name = "user:" + i;
+            RedissonClient from = before.route(name);
+            RedissonClient to = after.route(name);
+            if (from != to) {
+                assertSame(added, to);
+                moved++;
+            }
+        }
+        double share = (double) moved / KEYS;
+        assertTrue("moved " + share, share > 0.15 && share < 0.35);
+    }
+
+    @Test
+    public void routesByHashTag() {
+        ConsistentHashRouter router = new ConsistentHashRouter(shards(8), 160);
+        RedissonClient owner = router.route("order:42");
+        for (int i = 0; i < 100; i++) {
+            assertSame(owner, router.route("{order:42}:item:" + i));
+        }
+        assertSame(router.route("{order:42}:a"), router.route("x{order:42}y"));
+    }
+
+    @Test
+    public void emptyTagRoutesByWholeName() {
+        ConsistentHashRouter router = new ConsistentHashRouter(shards(8), 160);
+        assertSame(router.route("a{}b"), router.route("a{}b"));
+        int differs = 0;
+        for (int i = 0; i < 100; i++) {
+            if (router.route("{}" + i) != router.route("{}")) {
+                differs++;
+            }
+        }
+        assertTrue(differs > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyShards() {
+        new ConsistentHashRouter(Collections.emptyMap(), 160);
+    }
+
+    private static Map<String, RedissonClient> shards(int count) {
+        Map<String, RedissonClient> shards = new LinkedHashMap<>();
+        for (int i = 1; i <= count; i++) {
+            shards.put("redis://10.0.0." + i + ":6379", mock(RedissonClient.class));
+        }
+        return shards;
+    }
+
+}